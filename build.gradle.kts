@@ -53,6 +53,7 @@ dependencies {
     implementation("com.fasterxml.jackson.core:jackson-databind")
     implementation("com.fasterxml.jackson.core:jackson-annotations")
     implementation("com.fasterxml.jackson.datatype:jackson-datatype-jsr310")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-yaml")
 
     implementation("org.slf4j:slf4j-simple:2.0.13")
 
@@ -60,8 +61,55 @@ dependencies {
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.10.3")
 }
 
+val cdsArchiveName = "${project.name}.jsa"
+
 application {
     mainClass.set("org.enginehub.crowdin.Main")
+    // Use the shipped archive if it matches this JVM and its jars, otherwise recreate it on exit
+    applicationDefaultJvmArgs = listOf(
+        "-XX:SharedArchiveFile=APP_HOME_PLACEHOLDER/lib/$cdsArchiveName",
+        "-XX:+AutoCreateSharedArchive",
+    )
+}
+
+tasks.startScripts {
+    doLast {
+        unixScript.writeText(unixScript.readText().replace("APP_HOME_PLACEHOLDER", "'\"\$APP_HOME\"'"))
+        windowsScript.writeText(windowsScript.readText().replace("APP_HOME_PLACEHOLDER", "%APP_HOME%"))
+    }
+}
+
+// The archive records the class path, so train with the jars laid out like in the distribution
+val cdsTrainingLibs = tasks.register<Sync>("cdsTrainingLibs") {
+    from(tasks.jar)
+    from(configurations.runtimeClasspath)
+    into(layout.buildDirectory.dir("cds/lib"))
+}
+
+val cdsArchive = tasks.register<JavaExec>("cdsArchive") {
+    description = "Creates the class-data sharing archive from a training run."
+    dependsOn(cdsTrainingLibs)
+    val libDir = layout.buildDirectory.dir("cds/lib")
+    val archive = layout.buildDirectory.file("cds/$cdsArchiveName")
+    outputs.file(archive)
+    mainClass.set("org.enginehub.crowdin.CdsTraining")
+    classpath = files(provider {
+        // Same order as the start scripts
+        tasks.startScripts.get().classpath!!.map { libDir.get().file(it.name) }
+    })
+    jvmArgumentProviders.add(CommandLineArgumentProvider {
+        listOf("-XX:ArchiveClassesAtExit=${archive.get().asFile}")
+    })
+}
+
+distributions {
+    main {
+        contents {
+            from(cdsArchive) {
+                into("lib")
+            }
+        }
+    }
 }
 
 tasks.named<Test>("test") {
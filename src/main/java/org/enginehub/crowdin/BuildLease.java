@@ -0,0 +1,188 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Lets one of several concurrent runs own the build, using a lock file in a directory they share.
+ * The others wait for the owner to finish and take its result instead of building themselves, or
+ * take over if it fails. The owner keeps the lock fresh, so a lock older than the TTL is from a run
+ * that died and is broken. Without a directory every run owns its build.
+ */
+public final class BuildLease {
+
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(5);
+
+    public static BuildLease open(@Nullable Path directory, String key, Duration ttl) throws IOException {
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        return new BuildLease(directory, key, ttl);
+    }
+
+    private final @Nullable Path lockFile;
+    private final @Nullable Path resultFile;
+    private final Duration ttl;
+    private @Nullable Thread heartbeat;
+
+    private BuildLease(@Nullable Path directory, String key, Duration ttl) {
+        this.lockFile = directory == null ? null : directory.resolve(key + ".lock");
+        this.resultFile = directory == null ? null : directory.resolve(key + ".result");
+        this.ttl = ttl;
+    }
+
+    /**
+     * Take the lease, waiting while another run holds it.
+     *
+     * @return the result of the run that held it, or empty if this run now holds it
+     */
+    public Optional<String> acquireOrAwait() throws IOException {
+        if (lockFile == null || resultFile == null) {
+            return Optional.empty();
+        }
+        while (true) {
+            try {
+                Files.createFile(lockFile);
+                // Only results written while a lock is seen count, so clear the previous owner's
+                Files.deleteIfExists(resultFile);
+                startHeartbeat(lockFile);
+                return Optional.empty();
+            } catch (FileAlreadyExistsException e) {
+                System.err.println("Another run holds " + lockFile + ", waiting for its result");
+            }
+            awaitRelease(lockFile);
+            try {
+                return Optional.of(Files.readString(resultFile));
+            } catch (NoSuchFileException e) {
+                System.err.println("The run holding " + lockFile + " left no result, taking over");
+            }
+        }
+    }
+
+    private void awaitRelease(Path lockFile) throws IOException {
+        while (true) {
+            FileTime touched;
+            try {
+                touched = Files.getLastModifiedTime(lockFile);
+            } catch (NoSuchFileException e) {
+                return;
+            }
+            if (isStale(touched)) {
+                System.err.println("Breaking " + lockFile + ", untouched since " + touched);
+                if (breakLock(lockFile)) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for " + lockFile, e);
+            }
+        }
+    }
+
+    private boolean isStale(FileTime touched) {
+        return touched.toInstant().isBefore(Instant.now().minus(ttl));
+    }
+
+    /**
+     * Remove a stale lock. Other waiters may be breaking it at the same time, and one of them may
+     * already hold a new lock, so the lock is first moved aside where only this run can see it, and
+     * only deleted if it is still the stale one.
+     *
+     * @return whether the lock is gone, otherwise it has to be waited for again
+     */
+    private boolean breakLock(Path lockFile) throws IOException {
+        var tombstone = lockFile.resolveSibling(lockFile.getFileName() + "." + UUID.randomUUID() + ".broken");
+        try {
+            Files.move(lockFile, tombstone, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            // Another waiter broke it first
+            return true;
+        }
+        if (isStale(Files.getLastModifiedTime(tombstone))) {
+            Files.delete(tombstone);
+            return true;
+        }
+        // The lock was taken anew before it was moved, give it back to its owner
+        try {
+            Files.move(tombstone, lockFile);
+        } catch (FileAlreadyExistsException e) {
+            System.err.println("Moved aside the live lock " + lockFile + " while another run took it, both may build");
+            Files.delete(tombstone);
+        }
+        return false;
+    }
+
+    private void startHeartbeat(Path lockFile) {
+        var interval = ttl.dividedBy(3);
+        heartbeat = Thread.ofPlatform().name("lease-heartbeat").daemon().start(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(interval);
+                    Files.setLastModifiedTime(lockFile, FileTime.from(Instant.now()));
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException e) {
+                    System.err.println("Failed to refresh " + lockFile + ", it may be broken: " + e);
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * Give up the lease, leaving {@code result} for waiting runs. Without a result they take over
+     * one by one.
+     */
+    public void release(@Nullable String result) throws IOException {
+        if (lockFile == null || resultFile == null || heartbeat == null) {
+            return;
+        }
+        heartbeat.interrupt();
+        try {
+            heartbeat.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (result != null) {
+            var temporary = resultFile.resolveSibling(resultFile.getFileName() + ".tmp");
+            Files.writeString(temporary, result);
+            Files.move(temporary, resultFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.deleteIfExists(lockFile);
+    }
+}
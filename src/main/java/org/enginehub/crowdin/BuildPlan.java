@@ -0,0 +1,38 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import org.enginehub.crowdin.client.request.CreateProjectBuild;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+
+/**
+ * What the bundle is made from: a build of {@code request}, laid over the unchanged languages
+ * of {@code base} if there is one. With no {@code request}, {@code base} is used as-is, after
+ * applying {@code sync} if there is one.
+ */
+record BuildPlan(@Nullable CreateProjectBuild request, @Nullable Path base, BundleManifest manifest,
+                 @Nullable IncrementalSync sync) {
+    BuildPlan(@Nullable CreateProjectBuild request, @Nullable Path base, BundleManifest manifest) {
+        this(request, base, manifest, null);
+    }
+}
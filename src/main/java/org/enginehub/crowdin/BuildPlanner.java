@@ -0,0 +1,203 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import org.enginehub.crowdin.client.SimpleCrowdin;
+import org.enginehub.crowdin.client.request.CreateProjectBuild;
+import org.enginehub.crowdin.client.response.Language;
+import org.enginehub.crowdin.client.response.LanguageProgress;
+import org.enginehub.crowdin.client.response.ProjectBuild;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Decides how much of the bundle to fetch from Crowdin, and which build to fetch it from.
+ *
+ * @param fullBuildInterval how old the last full build may get before every language is built again
+ * @param incrementalSync sync changed languages from the previous bundle instead of building them
+ * @param reuseBuilds pick up a finished build that already has everything a new one would
+ */
+record BuildPlanner(Duration fullBuildInterval, boolean incrementalSync, boolean reuseBuilds) {
+
+    BuildPlan plan(Optional<Path> previousBundle, List<LanguageProgress> progress,
+                   List<Language> targetLanguages, boolean sourceChanged) throws IOException {
+        var languages = progress.stream().collect(Collectors.toMap(
+            LanguageProgress::languageId, LanguageProgress::phrases
+        ));
+        // Whatever is fetched now is at least as new as this
+        var now = Instant.now();
+        var fullBuild = new BuildPlan(
+            new CreateProjectBuild(true), null, new BundleManifest(now, languages).withSyncedAt(now)
+        );
+        if (previousBundle.isEmpty()) {
+            return fullBuild;
+        }
+        var base = previousBundle.get();
+        Optional<BundleManifest> previousManifest;
+        try (var zipFs = FileSystems.newFileSystem(base)) {
+            previousManifest = BundleManifest.read(zipFs);
+        }
+        String fullBuildReason = null;
+        if (sourceChanged) {
+            fullBuildReason = "the source changed";
+        } else if (previousManifest.isEmpty()) {
+            fullBuildReason = "the previous bundle has no manifest";
+        } else if (previousManifest.get().fullBuildAt().isBefore(Instant.now().minus(fullBuildInterval))) {
+            fullBuildReason = "the last full build is too old";
+        } else if (!languages.keySet().containsAll(previousManifest.get().languages().keySet())) {
+            fullBuildReason = "languages were removed";
+        }
+        if (fullBuildReason != null) {
+            System.err.println("Building every language, " + fullBuildReason);
+            Files.delete(base);
+            return fullBuild;
+        }
+        var previous = previousManifest.get();
+        var changed = languages.entrySet().stream()
+            .filter(entry -> !entry.getValue().equals(previous.languages().get(entry.getKey())))
+            .map(Map.Entry::getKey)
+            .sorted()
+            .toList();
+        var manifest = new BundleManifest(previous.fullBuildAt(), languages).withSyncedAt(now);
+        if (changed.isEmpty()) {
+            System.err.println("No language changed since the previous bundle, reusing it");
+            return new BuildPlan(null, base, manifest.withSyncedAt(previous.syncedAt()));
+        }
+        if (incrementalSync) {
+            var sync = planSync(base, previous, targetLanguages, changed);
+            if (sync.isPresent()) {
+                System.err.println("Syncing translations of " + String.join(", ", changed) + " made since "
+                    + sync.get().since());
+                return new BuildPlan(null, base, manifest, sync.get());
+            }
+        }
+        System.err.println("Building only changed languages: " + String.join(", ", changed));
+        return new BuildPlan(new CreateProjectBuild(true, changed), base, manifest);
+    }
+
+    /**
+     * @param changed the languages whose progress changed, which are the only ones fetched
+     */
+    private static Optional<IncrementalSync> planSync(Path base, BundleManifest previous,
+                                                      List<Language> targetLanguages,
+                                                      List<String> changed) throws IOException {
+        var since = previous.syncedAt();
+        if (since == null) {
+            System.err.println("Not syncing incrementally, the previous bundle has no sync time");
+            return Optional.empty();
+        }
+        Set<String> bundleDirectories;
+        try (var zipFs = FileSystems.newFileSystem(base);
+             var paths = Files.list(zipFs.getPath("/"))) {
+            bundleDirectories = paths.filter(Files::isDirectory)
+                .map(directory -> directory.getFileName().toString().replace("/", ""))
+                .collect(Collectors.toSet());
+        }
+        var directories = IncrementalSync.directories(targetLanguages, bundleDirectories);
+        if (directories.isEmpty()) {
+            System.err.println("Not syncing incrementally, no language code names the bundle's directories");
+            return Optional.empty();
+        }
+        var changedDirectories = new HashMap<>(directories.get());
+        changedDirectories.keySet().retainAll(changed);
+        return Optional.of(new IncrementalSync(since, Map.copyOf(changedDirectories)));
+    }
+
+    /**
+     * Rebuild the plan a previous attempt checkpointed. Its manifest already reflects the progress
+     * it was planned from.
+     */
+    static BuildPlan resume(CreateProjectBuild request, BundleManifest manifest, Optional<Path> previousBundle) {
+        if (request.targetLanguageIds() == null) {
+            previousBundle.ifPresent(Main::deleteQuietly);
+            return new BuildPlan(request, null, manifest);
+        }
+        checkState(
+            previousBundle.isPresent(),
+            "The checkpointed partial build needs the previous bundle, which is no longer available"
+        );
+        return new BuildPlan(request, previousBundle.get(), manifest);
+    }
+
+    CompletableFuture<ProjectBuild> createOrReuseBuild(SimpleCrowdin crowdinClient, CreateProjectBuild request,
+                                                       Instant notBefore, CheckpointStore checkpoints) {
+        return findReusableBuild(crowdinClient, request, notBefore).thenCompose(reusable -> {
+            if (reusable.isPresent()) {
+                var build = reusable.get();
+                System.err.println("Reusing build " + build.id() + " from " + build.createdAt());
+                return CompletableFuture.completedFuture(build);
+            }
+            return crowdinClient.buildProjectTranslationAsync(request);
+        }).thenApply(build -> {
+            checkpoints.update(c -> c.withBuildId(build.id()));
+            return build;
+        });
+    }
+
+    /**
+     * Find the newest finished build made with the same options as {@code request} after
+     * {@code notBefore}, i.e. one that already contains everything a new build would.
+     */
+    private CompletableFuture<Optional<ProjectBuild>> findReusableBuild(SimpleCrowdin crowdinClient,
+                                                                        CreateProjectBuild request,
+                                                                        Instant notBefore) {
+        if (!reuseBuilds) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return crowdinClient.listProjectBuildsAsync().thenApply(builds -> builds.stream()
+            .filter(build -> build.status() == ProjectBuild.Status.FINISHED)
+            .filter(build -> build.createdAt().isAfter(notBefore))
+            .filter(build -> matchesRequest(build, request))
+            .max(Comparator.comparing(ProjectBuild::createdAt)));
+    }
+
+    private static boolean matchesRequest(ProjectBuild build, CreateProjectBuild request) {
+        var attributes = build.attributes();
+        if (attributes == null) {
+            return false;
+        }
+        return attributes.skipUntranslatedStrings() == request.skipUntranslatedStrings()
+            && Objects.equals(attributes.branchId(), request.branchId())
+            && languageSet(attributes.targetLanguageIds()).equals(languageSet(request.targetLanguageIds()));
+    }
+
+    private static Set<String> languageSet(@Nullable List<String> languageIds) {
+        // null and empty both mean every language
+        return languageIds == null ? Set.of() : Set.copyOf(languageIds);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.enginehub.crowdin.client.response.LanguageProgress;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Metadata stored at {@link #PATH} inside each published bundle, so the next run can build on it.
+ *
+ * @param fullBuildAt when the last build covering every language was made
+ * @param languages the translation counts per Crowdin language ID that this bundle was built from
+ * @param duplicates paths left out of the bundle, mapped to the path holding the same content
+ * @param locales statistics for each translation file, by path, so consumers can load them lazily
+ * @param syncedAt when the translations were last fetched from Crowdin, which an incremental sync
+ *     fetches the changes since
+ * @param fallbacks the keys of each translation file, by path, that were filled from a fallback
+ *     locale rather than translated, so the next run can fill them afresh
+ */
+public record BundleManifest(
+    Instant fullBuildAt,
+    Map<String, LanguageProgress.Counts> languages,
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    Map<String, String> duplicates,
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    Map<String, LocaleStats> locales,
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Nullable Instant syncedAt,
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    Map<String, List<String>> fallbacks
+) {
+    public static final String PATH = "/crowdin-distributor.json";
+
+    public BundleManifest {
+        // Older manifests lack these
+        if (duplicates == null) {
+            duplicates = Map.of();
+        }
+        if (locales == null) {
+            locales = Map.of();
+        }
+        if (fallbacks == null) {
+            fallbacks = Map.of();
+        }
+    }
+
+    public BundleManifest(Instant fullBuildAt, Map<String, LanguageProgress.Counts> languages) {
+        this(fullBuildAt, languages, Map.of(), Map.of(), null, Map.of());
+    }
+
+    public BundleManifest withDuplicates(Map<String, String> duplicates) {
+        return new BundleManifest(fullBuildAt, languages, duplicates, locales, syncedAt, fallbacks);
+    }
+
+    public BundleManifest withLocales(Map<String, LocaleStats> locales) {
+        return new BundleManifest(fullBuildAt, languages, duplicates, locales, syncedAt, fallbacks);
+    }
+
+    public BundleManifest withSyncedAt(@Nullable Instant syncedAt) {
+        return new BundleManifest(fullBuildAt, languages, duplicates, locales, syncedAt, fallbacks);
+    }
+
+    public BundleManifest withFallbacks(Map<String, List<String>> fallbacks) {
+        return new BundleManifest(fullBuildAt, languages, duplicates, locales, syncedAt, fallbacks);
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    public static Optional<BundleManifest> read(FileSystem bundle) throws IOException {
+        var path = bundle.getPath(PATH);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try (var input = Files.newInputStream(path)) {
+            return Optional.of(MAPPER.readValue(input, BundleManifest.class));
+        }
+    }
+
+    public void write(FileSystem bundle) throws IOException {
+        try (var output = Files.newOutputStream(bundle.getPath(PATH))) {
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(output, this);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Shrinks a patched bundle. Each step is optional, since consumers have to cope with its result:
+ * compact JSON, locale files without the entries that equal the source, and byte-identical locale
+ * files stored once.
+ *
+ * @param minify re-serialize JSON files without whitespace
+ * @param dropSourceIdentical remove locale entries that are the same as the source, consumers fall
+ *     back to the source for them
+ * @param dedupe keep one of each set of identical locale files, the others are listed in
+ *     {@link BundleManifest#duplicates()}
+ */
+record BundleOptimizer(boolean minify, boolean dropSourceIdentical, boolean dedupe) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    boolean enabled() {
+        return minify || dropSourceIdentical || dedupe;
+    }
+
+    /**
+     * @param sourcePaths paths of the source files, whose translations are in each language directory
+     * @return the duplicates that were removed, mapped to the path with the same content
+     */
+    Map<String, String> optimize(FileSystem bundle, List<String> sourcePaths) throws IOException {
+        var root = bundle.getPath("/");
+        var sizeBefore = jsonSize(root);
+        var localeFiles = new ArrayList<Path>();
+        for (var sourcePath : sourcePaths) {
+            var source = bundle.getPath(sourcePath);
+            var translations = localeFiles(root, sourcePath);
+            localeFiles.addAll(translations);
+            if (!sourcePath.endsWith(".json")) {
+                continue;
+            }
+            var sourceTree = MAPPER.readTree(Files.readAllBytes(source));
+            for (var file : translations) {
+                rewrite(file, sourceTree);
+            }
+            if (minify) {
+                rewrite(source, null);
+            }
+        }
+        var duplicates = dedupe ? dedupe(localeFiles) : Map.<String, String>of();
+        System.err.println(
+            "Optimized bundle: " + sizeBefore + " -> " + jsonSize(root) + " bytes of JSON, "
+                + duplicates.size() + " duplicate files removed"
+        );
+        return duplicates;
+    }
+
+    private void rewrite(Path file, @Nullable JsonNode sourceTree) throws IOException {
+        var tree = MAPPER.readTree(Files.readAllBytes(file));
+        var dropped = false;
+        if (dropSourceIdentical && sourceTree != null && tree instanceof ObjectNode object) {
+            dropped = object.properties().removeIf(entry -> entry.getValue().equals(sourceTree.get(entry.getKey())));
+        }
+        if (!minify && !dropped) {
+            return;
+        }
+        var writer = minify ? MAPPER.writer() : MAPPER.writerWithDefaultPrettyPrinter();
+        Files.write(file, writer.writeValueAsBytes(tree));
+    }
+
+    private static Map<String, String> dedupe(List<Path> localeFiles) throws IOException {
+        // Sorted, so the same file is kept from one run to the next
+        var byPath = new TreeMap<String, Path>();
+        for (var file : localeFiles) {
+            byPath.put(file.toString(), file);
+        }
+        var firstByHash = new HashMap<HashCode, String>();
+        var duplicates = new TreeMap<String, String>();
+        for (var entry : byPath.entrySet()) {
+            var hash = Hashing.sha256().hashBytes(Files.readAllBytes(entry.getValue()));
+            var first = firstByHash.putIfAbsent(hash, entry.getKey());
+            if (first != null) {
+                Files.delete(entry.getValue());
+                duplicates.put(entry.getKey(), first);
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Restore the duplicates of {@code previous} under {@code directory} into {@code bundle}, for a
+     * language directory carried over from it.
+     */
+    static void restoreDuplicates(FileSystem previous, BundleManifest previousManifest, String directory,
+                                  FileSystem bundle) throws IOException {
+        var prefix = "/" + directory + "/";
+        for (var entry : previousManifest.duplicates().entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                var target = bundle.getPath(entry.getKey());
+                Files.createDirectories(target.getParent());
+                Files.copy(previous.getPath(entry.getValue()), target);
+            }
+        }
+    }
+
+    /**
+     * Restore the duplicates {@code manifest} lists into {@code bundle} itself, before its files are
+     * changed or checked.
+     */
+    static void restoreDuplicates(FileSystem bundle, BundleManifest manifest) throws IOException {
+        for (var entry : manifest.duplicates().entrySet()) {
+            var target = bundle.getPath(entry.getKey());
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Files.copy(bundle.getPath(entry.getValue()), target);
+            }
+        }
+    }
+
+    /**
+     * @return the translations of {@code sourcePath}, one per language directory
+     */
+    static List<Path> localeFiles(Path root, String sourcePath) throws IOException {
+        var relative = root.getFileSystem().getPath(sourcePath.replaceFirst("^/+", ""));
+        try (var directories = Files.list(root)) {
+            return directories
+                .filter(Files::isDirectory)
+                .map(directory -> directory.resolve(relative))
+                .filter(Files::isRegularFile)
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static long jsonSize(Path root) throws IOException {
+        try (var files = Files.walk(root)) {
+            var total = 0L;
+            for (var iter = files.filter(file -> file.toString().endsWith(".json")).iterator(); iter.hasNext(); ) {
+                total += Files.size(iter.next());
+            }
+            return total;
+        }
+    }
+}
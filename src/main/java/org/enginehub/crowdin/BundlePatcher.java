@@ -0,0 +1,345 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import org.enginehub.crowdin.jfr.LocaleValidationEvent;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Patches the source files into a downloaded bundle, validates every translation against its
+ * source, and writes the bundle's manifest.
+ *
+ * @param fallbacks the locales to fill missing keys from
+ * @param optimizer applied to the bundle once it is valid
+ */
+record BundlePatcher(FallbackLocales fallbacks, BundleOptimizer optimizer) {
+
+    /**
+     * @return the patched bundle
+     */
+    Path patch(UnpatchedBundle bundle, List<SourceFile> sourceFiles,
+               CheckpointStore checkpoints) throws IOException {
+        var base = bundle.plan().base();
+        var patched = bundle.file();
+        if (checkpoints.enabled()) {
+            // Keep the download intact, a failure while patching can then resume from it
+            patched = checkpoints.file(CheckpointStore.PATCHED_FILE);
+            Files.copy(bundle.file(), patched, StandardCopyOption.REPLACE_EXISTING);
+            if (bundle.file().equals(base)) {
+                // A reused previous bundle is not a download to resume from, and nothing else deletes it
+                Files.delete(base);
+            }
+        }
+        try (var zipFs = FileSystems.newFileSystem(patched)) {
+            Map<String, List<String>> previousFallbacks = Map.of();
+            if (base != null && !base.equals(bundle.file())) {
+                previousFallbacks = mergeUnchangedLanguages(zipFs, base, sourceFiles);
+                Files.delete(base);
+            }
+            // A previous bundle used as the base has its own manifest, and lacks its duplicates
+            var baseManifest = BundleManifest.read(zipFs);
+            if (baseManifest.isPresent()) {
+                BundleOptimizer.restoreDuplicates(zipFs, baseManifest.get());
+                previousFallbacks = baseManifest.get().fallbacks();
+            }
+            var validationCache = ValidationCache.load(checkpoints.directory());
+            var locales = new TreeMap<String, LocaleStats>();
+            var filled = new TreeMap<String, List<String>>();
+            System.err.println("Patching in source files...");
+            try {
+                patchAndValidate(zipFs, sourceFiles, fallbacks, previousFallbacks, filled, validationCache, locales);
+            } finally {
+                validationCache.save();
+            }
+            Map<String, String> duplicates = Map.of();
+            if (optimizer.enabled()) {
+                duplicates = optimizer.optimize(
+                    zipFs, sourceFiles.stream().map(file -> file.info().path()).toList()
+                );
+                // The stats are those of the files as published
+                var sourceKeys = optimizer.dropSourceIdentical() ? countSourceKeys(zipFs, sourceFiles) : null;
+                for (var entry : locales.entrySet()) {
+                    var file = zipFs.getPath(duplicates.getOrDefault(entry.getKey(), entry.getKey()));
+                    var content = Files.readAllBytes(file);
+                    var stats = entry.getValue().withContent(content.length, ValidationCache.hash(content));
+                    var path = zipFs.getPath(entry.getKey());
+                    var relativePath = path.subpath(1, path.getNameCount()).toString();
+                    if (sourceKeys != null && sourceKeys.containsKey(relativePath)) {
+                        var format = TranslationFormat.forPath(relativePath).orElseThrow();
+                        int keys;
+                        try (var input = new ByteArrayInputStream(content)) {
+                            keys = format.read(input).size();
+                        }
+                        stats = stats.withKeys(keys, LocaleStats.coverage(keys, sourceKeys.get(relativePath)));
+                    }
+                    entry.setValue(stats);
+                }
+            }
+            bundle.plan().manifest().withDuplicates(duplicates).withLocales(locales).withFallbacks(filled)
+                .write(zipFs);
+        }
+        System.err.println("Patching complete!");
+        if (checkpoints.enabled()) {
+            var sha256 = CheckpointStore.sha256(patched);
+            checkpoints.update(c -> c.withPatched(sha256));
+        }
+        return patched;
+    }
+
+    /**
+     * @return the number of entries of each source file in a known format, by path relative to the
+     *     language directories
+     */
+    private static Map<String, Integer> countSourceKeys(FileSystem zipFs,
+                                                        List<SourceFile> sourceFiles) throws IOException {
+        var counts = new HashMap<String, Integer>();
+        for (var sourceFile : sourceFiles) {
+            var path = sourceFile.info().path();
+            var format = TranslationFormat.forPath(path);
+            if (format.isPresent()) {
+                try (var input = Files.newInputStream(zipFs.getPath(path))) {
+                    counts.put(path.replaceFirst("^/+", ""), format.get().read(input).size());
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Copy each top-level language directory of {@code previousBundle} that the new bundle lacks,
+     * i.e. those of the languages left out of a partial build.
+     *
+     * @return the keys filled from fallbacks in the copied files, by path
+     */
+    private static Map<String, List<String>> mergeUnchangedLanguages(FileSystem bundle, Path previousBundle,
+                                                List<SourceFile> sourceFiles) throws IOException {
+        // Source files can live in directories of their own, which aren't languages
+        var sourceRoots = sourceFiles.stream()
+            .map(file -> bundle.getPath(file.info().path()))
+            .filter(path -> path.getNameCount() > 1)
+            .map(path -> path.getName(0).toString())
+            .collect(Collectors.toSet());
+        try (var previous = FileSystems.newFileSystem(previousBundle);
+             var directories = Files.list(previous.getPath("/"))) {
+            var previousManifest = BundleManifest.read(previous);
+            var fallbacks = new HashMap<String, List<String>>();
+            for (var iter = directories.filter(Files::isDirectory).iterator(); iter.hasNext(); ) {
+                var directory = iter.next();
+                var name = directory.getFileName().toString().replace("/", "");
+                var target = bundle.getPath("/", name);
+                if (sourceRoots.contains(name) || Files.exists(target)) {
+                    continue;
+                }
+                System.err.println("Keeping " + name + " from the previous bundle");
+                copyTree(directory, target);
+                if (previousManifest.isPresent()) {
+                    BundleOptimizer.restoreDuplicates(previous, previousManifest.get(), name, bundle);
+                    previousManifest.get().fallbacks().forEach((path, keys) -> {
+                        if (path.startsWith("/" + name + "/")) {
+                            fallbacks.put(path, keys);
+                        }
+                    });
+                }
+            }
+            return fallbacks;
+        }
+    }
+
+    private static void copyTree(Path source, Path target) throws IOException {
+        try (var paths = Files.walk(source)) {
+            for (var iter = paths.iterator(); iter.hasNext(); ) {
+                var next = iter.next();
+                var destination = target.resolve(source.relativize(next).toString());
+                if (Files.isDirectory(next)) {
+                    Files.createDirectories(destination);
+                } else {
+                    Files.copy(next, destination);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param previousFallbacks the keys a previous run filled from fallbacks, by path
+     * @param filled receives the keys filled from fallbacks now, by path
+     * @param locales receives the statistics of each validated translation file
+     */
+    private static void patchAndValidate(FileSystem zipFs, List<SourceFile> sourceFiles,
+                                         FallbackLocales fallbacks,
+                                         Map<String, List<String>> previousFallbacks,
+                                         Map<String, List<String>> filled,
+                                         ValidationCache validationCache,
+                                         Map<String, LocaleStats> locales) throws IOException {
+        var checks = new ArrayList<LocaleCheck>();
+        for (SourceFile sourceFile : sourceFiles) {
+            String path = sourceFile.info().path();
+            System.err.println("Patching in " + path);
+            Path zipFsPath = zipFs.getPath(path);
+            try (var output = zipFs.provider().newOutputStream(zipFsPath)) {
+                Files.copy(sourceFile.content(), output);
+            }
+            var format = TranslationFormat.forPath(path);
+            if (format.isEmpty()) {
+                System.err.println("Not validating " + path + ", which is in no known format");
+                continue;
+            }
+            System.err.println("Validating " + format.get().name() + " language file " + path);
+            Map<String, String> data;
+            try (var input = Files.newInputStream(zipFsPath)) {
+                data = format.get().read(input);
+            }
+            if (fallbacks.enabled() || !previousFallbacks.isEmpty()) {
+                filled.putAll(fallbacks.resolve(zipFs, path, format.get(), data, previousFallbacks));
+            }
+            var validator = new TranslationValidator(data);
+            var signature = validator.signature();
+            var sourcePathRelative = zipFs.getPath(path.replaceFirst("^/+", ""));
+            try (var files = Files.list(zipFs.getPath("/"))
+                .filter(Files::isDirectory)
+                .map(p -> p.resolve(sourcePathRelative))
+                .filter(Files::exists)) {
+                files.forEach(file -> checks.add(new LocaleCheck(file, format.get(), validator, signature)));
+            }
+        }
+        checkState(
+            validateLocales(checks, validationCache, locales),
+            "Validation failures occurred"
+        );
+    }
+
+    private record LocaleCheck(
+        Path file, TranslationFormat format, TranslationValidator validator, String signature
+    ) {
+    }
+
+    /**
+     * @param bytes size of the file
+     * @param keys keys read from the file, or -1 if it could not be read
+     */
+    private record LocaleResult(Path file, boolean cached, int bytes, int keys,
+                                @Nullable LocaleStats stats, @Nullable String failure) {
+    }
+
+    /**
+     * Validates every locale file at once, whatever source and format it belongs to.
+     */
+    private static boolean validateLocales(List<LocaleCheck> checks, ValidationCache validationCache,
+                                           Map<String, LocaleStats> locales) {
+        var results = checks.parallelStream()
+            .map(check -> {
+                try {
+                    return validateLocale(check, validationCache);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })
+            .toList();
+        var success = true;
+        var cached = 0;
+        for (var result : results) {
+            if (result.cached()) {
+                cached++;
+            }
+            if (result.failure() != null) {
+                System.err.println(result.failure());
+                success = false;
+            } else {
+                locales.put(result.file().toString(), Objects.requireNonNull(result.stats()));
+            }
+        }
+        if (cached > 0) {
+            System.err.println("==> " + cached + " unchanged files passed before");
+        }
+        return success;
+    }
+
+    private static LocaleResult validateLocale(LocaleCheck check,
+                                               ValidationCache validationCache) throws IOException {
+        var event = new LocaleValidationEvent();
+        event.begin();
+        var result = checkLocale(check, validationCache);
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = check.file().toString();
+            event.locale = check.file().getName(0).toString().replace("/", "");
+            event.sourceKeys = check.validator().sourceKeys();
+            event.bytes = result.bytes();
+            event.keys = result.keys();
+            event.cached = result.cached();
+            event.passed = result.failure() == null;
+            event.commit();
+        }
+        return result;
+    }
+
+    private static LocaleResult checkLocale(LocaleCheck check,
+                                            ValidationCache validationCache) throws IOException {
+        var file = check.file();
+        var content = Files.readAllBytes(file);
+        var hash = ValidationCache.hash(content);
+        var cachedKeys = validationCache.passed(check.signature(), hash);
+        int keys;
+        if (cachedKeys.isPresent()) {
+            keys = cachedKeys.getAsInt();
+        } else {
+            System.err.println("==> Against " + file);
+            Map<String, String> data;
+            try (var input = new ByteArrayInputStream(content)) {
+                data = check.format().read(input);
+            } catch (IOException e) {
+                return new LocaleResult(
+                    file, false, content.length, -1, null, "Could not read " + file + ": " + e.getMessage()
+                );
+            }
+            var failure = check.validator().validate(file.toString(), data);
+            if (failure != null) {
+                return new LocaleResult(file, false, content.length, data.size(), null, failure);
+            }
+            keys = data.size();
+            validationCache.recordPass(check.signature(), hash, keys);
+        }
+        // Valid files only have source keys, so this is the share of the source they cover
+        var coverage = LocaleStats.coverage(keys, check.validator().sourceKeys());
+        var stats = new LocaleStats(
+            file.getName(0).toString().replace("/", ""), keys, coverage, content.length, hash
+        );
+        return new LocaleResult(file, cachedKeys.isPresent(), content.length, keys, stats, null);
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.enginehub.crowdin.client.InMemoryTransport;
+import org.enginehub.crowdin.client.SimpleCrowdin;
+import org.enginehub.crowdin.client.response.LanguageProgress;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Training run for the class-data sharing archive shipped with the distribution. It goes through
+ * the same client and manifest code as a real run, against canned responses, so the classes that
+ * load on every run are archived.
+ */
+public final class CdsTraining {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final String PAGINATION = "\"pagination\":{\"offset\":0,\"limit\":500}";
+    private static final String BUILD = "{\"data\":{\"id\":1,\"status\":\"finished\",\"progress\":100,"
+        + "\"createdAt\":\"2024-01-01T00:00:00+00:00\","
+        + "\"attributes\":{\"skipUntranslatedStrings\":false,\"targetLanguageIds\":[]}}}";
+
+    public static void main(String[] args) throws IOException, IllegalAccessException {
+        // Loads the configuration options
+        MethodHandles.lookup().ensureInitialized(Main.class);
+
+        try (var transport = new InMemoryTransport(CdsTraining::respond);
+             var crowdinClient = new SimpleCrowdin(SimpleCrowdin.DEFAULT_BASE_URL, "training", 1, transport)) {
+            crowdinClient.getProjectAsync().join();
+            crowdinClient.listFilesAsync().join();
+            var progress = crowdinClient.listLanguageProgressAsync().join();
+            crowdinClient.listProjectBuildsAsync().join();
+            crowdinClient.checkProjectBuildStatusAsync(1).join();
+            crowdinClient.listStringsAsync(1).join();
+            crowdinClient.listLanguageTranslationsAsync("de", 1).join();
+
+            var bundle = Files.createTempFile("crowdin-distributor-training", ".zip");
+            try {
+                Files.delete(bundle);
+                try (var zipFs = FileSystems.newFileSystem(bundle, Map.of("create", true))) {
+                    new BundleManifest(Instant.now(), Map.of(
+                        progress.get(0).languageId(), progress.get(0).phrases()
+                    )).write(zipFs);
+                    BundleManifest.read(zipFs).orElseThrow();
+                }
+            } finally {
+                Files.deleteIfExists(bundle);
+            }
+        }
+    }
+
+    private static Response respond(Request request) {
+        var path = request.url().encodedPath();
+        var offset = request.url().queryParameter("offset");
+        String body;
+        if (offset != null && !offset.equals("0")) {
+            // Listings only end on an empty page
+            body = "{\"data\":[]," + PAGINATION + "}";
+        } else if (path.endsWith("/files")) {
+            body = "{\"data\":[{\"data\":{\"id\":1,\"path\":\"/strings.json\"}}]," + PAGINATION + "}";
+        } else if (path.endsWith("/languages/progress")) {
+            body = "{\"data\":[{\"data\":{\"languageId\":\"de\","
+                + "\"phrases\":{\"total\":1,\"translated\":1,\"approved\":0}}}]," + PAGINATION + "}";
+        } else if (path.endsWith("/strings")) {
+            body = "{\"data\":[{\"data\":{\"id\":1,\"identifier\":\"key\",\"text\":\"Text\"}}]," + PAGINATION + "}";
+        } else if (path.endsWith("/de/translations")) {
+            body = "{\"data\":[{\"data\":{\"stringId\":1,\"text\":\"Text\","
+                + "\"createdAt\":\"2024-01-01T00:00:00+00:00\"}}]," + PAGINATION + "}";
+        } else if (path.endsWith("/translations/builds")) {
+            body = "{\"data\":[" + BUILD + "]," + PAGINATION + "}";
+        } else if (path.contains("/translations/builds/")) {
+            body = BUILD;
+        } else {
+            body = "{\"data\":{\"id\":1,\"lastActivity\":\"2024-01-01T00:00:00+00:00\","
+                + "\"targetLanguages\":[{\"id\":\"de\",\"locale\":\"de-DE\",\"twoLettersCode\":\"de\","
+                + "\"threeLettersCode\":\"deu\",\"androidCode\":\"de-rDE\",\"osxCode\":\"de.lproj\","
+                + "\"osxLocale\":\"de\"}]}}";
+        }
+        return InMemoryTransport.respond(request, 200, JSON, body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import org.enginehub.crowdin.client.request.CreateProjectBuild;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+
+/**
+ * How far a run got, as persisted by {@link CheckpointStore}. Each phase fills in its own fields,
+ * so the last non-null one tells where to resume.
+ *
+ * @param sourceHash SHA-256 of the local source file, a checkpoint for other content is stale
+ * @param startedAt when the run that made this checkpoint started, old checkpoints are stale
+ * @param sourceUploaded whether Crowdin has the source, whether it was uploaded or already identical
+ * @param sourceUploadedAt when the source was replaced, if it was
+ * @param buildRequest the build that was planned, {@code null} until planned
+ * @param manifest the manifest planned for the bundle
+ * @param buildId the Crowdin build started for {@code buildRequest}
+ * @param bundleSha256 SHA-256 of the downloaded, unpatched bundle
+ * @param patchedSha256 SHA-256 of the patched bundle
+ */
+public record Checkpoint(
+    String sourceHash,
+    Instant startedAt,
+    boolean sourceUploaded,
+    @Nullable Instant sourceUploadedAt,
+    @Nullable CreateProjectBuild buildRequest,
+    @Nullable BundleManifest manifest,
+    @Nullable Long buildId,
+    @Nullable String bundleSha256,
+    @Nullable String patchedSha256
+) {
+    public static Checkpoint initial(String sourceHash) {
+        return new Checkpoint(sourceHash, Instant.now(), false, null, null, null, null, null, null);
+    }
+
+    public Checkpoint withSourceUploaded(@Nullable Instant uploadedAt) {
+        return new Checkpoint(sourceHash, startedAt, true, uploadedAt, null, null, null, null, null);
+    }
+
+    public Checkpoint withPlan(CreateProjectBuild request, BundleManifest manifest) {
+        return new Checkpoint(
+            sourceHash, startedAt, sourceUploaded, sourceUploadedAt, request, manifest, null, null, null
+        );
+    }
+
+    public Checkpoint withBuildId(long buildId) {
+        return new Checkpoint(
+            sourceHash, startedAt, sourceUploaded, sourceUploadedAt, buildRequest, manifest, buildId, null, null
+        );
+    }
+
+    public Checkpoint withBundle(String sha256) {
+        return new Checkpoint(
+            sourceHash, startedAt, sourceUploaded, sourceUploadedAt, buildRequest, manifest, buildId, sha256, null
+        );
+    }
+
+    public Checkpoint withPatched(String sha256) {
+        return new Checkpoint(
+            sourceHash, startedAt, sourceUploaded, sourceUploadedAt, buildRequest, manifest, buildId,
+            bundleSha256, sha256
+        );
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Persists a {@link Checkpoint} after each pipeline phase, along with the bundles it refers to, so
+ * a failed run resumes from its last completed phase when run again. A successful run clears it.
+ * Without a directory nothing is persisted and bundles go to temporary files.
+ */
+public final class CheckpointStore {
+
+    public static final String BUNDLE_FILE = "bundle.zip";
+    public static final String PATCHED_FILE = "patched.zip";
+    private static final String STATE_FILE = "checkpoint.json";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    public static String sha256(Path file) throws IOException {
+        return MoreFiles.asByteSource(file).hash(Hashing.sha256()).toString();
+    }
+
+    /**
+     * A store that persists nothing, for runs that cannot resume.
+     */
+    public static CheckpointStore disabled() {
+        return new CheckpointStore(null, Checkpoint.initial(""));
+    }
+
+    /**
+     * Load the checkpoint in {@code directory}, if it was made for a source with the same content
+     * less than {@code maxAge} ago. Anything older would publish outdated translations.
+     */
+    public static CheckpointStore open(@Nullable Path directory, Path sourceFile, Duration maxAge)
+        throws IOException {
+        var sourceHash = sha256(sourceFile);
+        var checkpoint = Checkpoint.initial(sourceHash);
+        if (directory != null) {
+            Files.createDirectories(directory);
+            var stateFile = directory.resolve(STATE_FILE);
+            if (Files.exists(stateFile)) {
+                var saved = MAPPER.readValue(stateFile.toFile(), Checkpoint.class);
+                if (!saved.sourceHash().equals(sourceHash)) {
+                    System.err.println("Ignoring checkpoint for different source content in " + directory);
+                } else if (saved.startedAt().isBefore(Instant.now().minus(maxAge))) {
+                    System.err.println("Ignoring checkpoint from " + saved.startedAt() + " in " + directory);
+                } else {
+                    System.err.println("Resuming from checkpoint in " + directory);
+                    checkpoint = saved;
+                }
+            }
+        }
+        return new CheckpointStore(directory, checkpoint);
+    }
+
+    private final @Nullable Path directory;
+    private Checkpoint current;
+
+    private CheckpointStore(@Nullable Path directory, Checkpoint current) {
+        this.directory = directory;
+        this.current = current;
+    }
+
+    public boolean enabled() {
+        return directory != null;
+    }
+
+    /**
+     * @return the checkpoint directory, or {@code null} if checkpoints are disabled
+     */
+    public @Nullable Path directory() {
+        return directory;
+    }
+
+    public synchronized Checkpoint current() {
+        return current;
+    }
+
+    /**
+     * Apply {@code change} and persist the result before returning.
+     */
+    public synchronized void update(UnaryOperator<Checkpoint> change) {
+        current = change.apply(current);
+        if (directory == null) {
+            return;
+        }
+        try {
+            // Write then move, so a crash never leaves a half-written checkpoint behind
+            var temporary = directory.resolve(STATE_FILE + ".tmp");
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(temporary.toFile(), current);
+            Files.move(
+                temporary, directory.resolve(STATE_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+            );
+        } catch (IOException e) {
+            // Losing a checkpoint only costs a resume, so it isn't worth failing the run over
+            System.err.println("Failed to save checkpoint: " + e);
+        }
+    }
+
+    /**
+     * Delete the checkpoint and its bundles, once the run they were for has completed.
+     */
+    public synchronized void clear() throws IOException {
+        current = Checkpoint.initial(current.sourceHash());
+        if (directory == null) {
+            return;
+        }
+        for (var name : new String[] {STATE_FILE, BUNDLE_FILE, PATCHED_FILE}) {
+            Files.deleteIfExists(directory.resolve(name));
+        }
+    }
+
+    /**
+     * Get where to store the bundle called {@code name}, which is a new temporary file if there is
+     * no checkpoint directory.
+     */
+    public Path file(String name) throws IOException {
+        if (directory == null) {
+            return Files.createTempFile("crowdin-distributor-" + name.replace(".zip", ""), ".zip");
+        }
+        return directory.resolve(name);
+    }
+
+    /**
+     * Get the stored bundle called {@code name}, if it is still present with the expected content.
+     */
+    public Optional<Path> validFile(String name, @Nullable String sha256) throws IOException {
+        if (directory == null || sha256 == null) {
+            return Optional.empty();
+        }
+        var file = directory.resolve(name);
+        if (!Files.isRegularFile(file) || !sha256(file).equals(sha256)) {
+            System.err.println("Checkpointed " + name + " is missing or modified, not resuming from it");
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+}
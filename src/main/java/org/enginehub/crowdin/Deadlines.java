@@ -0,0 +1,152 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import com.google.common.base.Splitter;
+import org.enginehub.crowdin.client.SimpleCrowdin;
+import org.enginehub.crowdin.client.response.ProjectBuild;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Time budgets for the whole run and for individual phases. When one runs out, in-flight requests
+ * and the Crowdin build we are waiting on are cancelled, and {@link #expired()} completes with the
+ * phase that ran out.
+ */
+public final class Deadlines {
+
+    /**
+     * Exit code for a run that was cancelled by a deadline.
+     */
+    public static final int EXIT_CODE = 3;
+
+    /**
+     * Parse per-phase budgets in minutes, e.g. {@code Build=30,Download=10}.
+     */
+    public static Map<String, Duration> parsePhases(String phases) {
+        var result = new HashMap<String, Duration>();
+        var entries = Splitter.on(',').trimResults().omitEmptyStrings()
+            .withKeyValueSeparator(Splitter.on('=').trimResults())
+            .split(phases);
+        entries.forEach((phase, minutes) -> {
+            var parsed = Long.parseLong(minutes);
+            checkArgument(parsed > 0, "Deadline for %s must be positive", phase);
+            result.put(phase, Duration.ofMinutes(parsed));
+        });
+        return Map.copyOf(result);
+    }
+
+    private final SimpleCrowdin crowdinClient;
+    private final Map<String, Duration> phases;
+    private final CompletableFuture<String> expired = new CompletableFuture<>();
+    private volatile boolean expiring;
+    private final AtomicReference<@Nullable ProjectBuild> pendingBuild = new AtomicReference<>();
+
+    /**
+     * @param run budget for the whole run, or {@code null} for none
+     */
+    public Deadlines(SimpleCrowdin crowdinClient, @Nullable Duration run, Map<String, Duration> phases) {
+        this.crowdinClient = crowdinClient;
+        this.phases = phases;
+        if (run != null) {
+            schedule("Run", run, null);
+        }
+    }
+
+    /**
+     * Completes with the name of the phase whose deadline passed first.
+     */
+    public CompletableFuture<String> expired() {
+        return expired;
+    }
+
+    /**
+     * Whether a deadline has passed, even if {@link #expired()} is still waiting on the
+     * cancellation. Anything that fails from then on most likely failed because it was cancelled.
+     */
+    public boolean expiring() {
+        return expiring;
+    }
+
+    /**
+     * Stop watching the budgets, the run is over.
+     */
+    public void finish() {
+        expired.cancel(false);
+    }
+
+    /**
+     * Expire if {@code stage} is still running when the budget of {@code phase} runs out.
+     */
+    public <T> CompletableFuture<T> guard(String phase, CompletableFuture<T> stage) {
+        var budget = phases.get(phase);
+        if (budget != null) {
+            schedule(phase, budget, stage);
+        }
+        return stage;
+    }
+
+    /**
+     * Cancel {@code build} on expiry until it finishes.
+     */
+    public <T> CompletableFuture<T> trackBuild(ProjectBuild build, CompletableFuture<T> completion) {
+        pendingBuild.set(build);
+        return completion.whenComplete((result, error) -> pendingBuild.compareAndSet(build, null));
+    }
+
+    private void schedule(String phase, Duration budget, @Nullable CompletableFuture<?> stage) {
+        CompletableFuture.delayedExecutor(budget.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (stage == null || !stage.isDone()) {
+                expire(phase, budget);
+            }
+        });
+    }
+
+    private void expire(String phase, Duration budget) {
+        synchronized (expired) {
+            if (expiring || expired.isDone()) {
+                return;
+            }
+            // Set before cancelling, so the failures it causes are put down to the deadline
+            expiring = true;
+            System.err.println("Deadline of " + budget.toMinutes() + " minutes for " + phase + " passed, cancelling");
+            crowdinClient.cancelAll();
+            var build = pendingBuild.getAndSet(null);
+            if (build != null) {
+                try {
+                    crowdinClient.cancelProjectBuild(build.id());
+                    System.err.println("Cancelled build " + build.id());
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to cancel build " + build.id() + ": " + e);
+                }
+            }
+            expired.complete(phase);
+        }
+    }
+}
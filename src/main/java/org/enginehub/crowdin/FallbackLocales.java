@@ -0,0 +1,185 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import com.google.common.base.Splitter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Which locale falls back to which, e.g. {@code pt-BR} to {@code pt}, all of them ending at the
+ * source. Resolving fills the gaps of each locale in the graph from the first ancestor that has
+ * the entry, so consumers find every key in a single lookup.
+ *
+ * @param parents the locale each locale falls back to before the source
+ */
+record FallbackLocales(Map<String, String> parents) {
+
+    /**
+     * @param graph e.g. {@code pt-BR:pt,es-MX:es}
+     */
+    static FallbackLocales parse(String graph) {
+        var parents = new HashMap<String, String>();
+        Splitter.on(',').trimResults().omitEmptyStrings()
+            .withKeyValueSeparator(Splitter.on(':').trimResults())
+            .split(graph)
+            .forEach(parents::put);
+        var fallbacks = new FallbackLocales(Map.copyOf(parents));
+        // Rejects cycles
+        parents.keySet().forEach(fallbacks::ancestors);
+        return fallbacks;
+    }
+
+    boolean enabled() {
+        return !parents.isEmpty();
+    }
+
+    /**
+     * @return the locales {@code locale} falls back to, nearest first
+     */
+    List<String> ancestors(String locale) {
+        var seen = new LinkedHashSet<String>();
+        seen.add(locale);
+        for (var parent = parents.get(locale); parent != null; parent = parents.get(parent)) {
+            checkArgument(seen.add(parent), "Fallback cycle through %s", seen);
+        }
+        seen.remove(locale);
+        return new ArrayList<>(seen);
+    }
+
+    /**
+     * Fill the gaps of the copies of {@code sourcePath} in each locale of the graph that the
+     * bundle has. Entries the locales have that the source lacks are kept, for validation to
+     * reject.
+     *
+     * <p>
+     * Entries a previous run filled are removed first and filled afresh, so they follow changes to
+     * the ancestors they came from. This also clears them from locales no longer in the graph.
+     * </p>
+     *
+     * @param previouslyFilled the keys filled before, by translation file path, for files the bundle
+     *     kept from the previous run
+     * @return the keys filled now, by translation file path
+     */
+    Map<String, List<String>> resolve(FileSystem zipFs, String sourcePath, TranslationFormat format,
+                                      Map<String, String> source,
+                                      Map<String, List<String>> previouslyFilled) throws IOException {
+        var relativePath = sourcePath.replaceFirst("^/+", "");
+        var graph = new LinkedHashSet<String>();
+        parents.forEach((child, parent) -> {
+            graph.add(child);
+            graph.add(parent);
+        });
+        var locales = new LinkedHashSet<>(graph);
+        for (var path : previouslyFilled.keySet()) {
+            var file = zipFs.getPath(path);
+            if (file.getNameCount() > 1 && file.subpath(1, file.getNameCount()).toString().equals(relativePath)) {
+                locales.add(file.getName(0).toString());
+            }
+        }
+        // Read everything first, so each locale is resolved from what its ancestors translated
+        var translated = new HashMap<String, Map<String, String>>();
+        var stale = new HashMap<String, Integer>();
+        // Filled files keep their own layout, and take the source's for the entries they gain
+        var sourceLayout = Files.readAllBytes(zipFs.getPath(sourcePath));
+        var layouts = new HashMap<String, List<byte[]>>();
+        for (var locale : locales) {
+            var file = zipFs.getPath("/", locale, relativePath);
+            if (Files.exists(file)) {
+                var content = Files.readAllBytes(file);
+                layouts.put(locale, List.of(content, sourceLayout));
+                Map<String, String> messages;
+                try (var input = new ByteArrayInputStream(content)) {
+                    messages = new LinkedHashMap<>(format.read(input));
+                }
+                var removed = 0;
+                for (var key : previouslyFilled.getOrDefault(file.toString(), List.of())) {
+                    if (messages.remove(key) != null) {
+                        removed++;
+                    }
+                }
+                translated.put(locale, messages);
+                stale.put(locale, removed);
+            }
+        }
+        var filledKeys = new HashMap<String, List<String>>();
+        for (var locale : locales) {
+            if (!Files.isDirectory(zipFs.getPath("/", locale))) {
+                continue;
+            }
+            var chain = new ArrayList<Map<String, String>>();
+            if (graph.contains(locale)) {
+                for (var ancestor : ancestors(locale)) {
+                    var messages = translated.get(ancestor);
+                    if (messages != null) {
+                        chain.add(messages);
+                    }
+                }
+                chain.add(source);
+            }
+            var resolved = new LinkedHashMap<>(translated.getOrDefault(locale, Map.of()));
+            var filled = new ArrayList<String>();
+            for (var key : source.keySet()) {
+                if (resolved.containsKey(key)) {
+                    continue;
+                }
+                for (var messages : chain) {
+                    var message = messages.get(key);
+                    if (message != null) {
+                        resolved.put(key, message);
+                        filled.add(key);
+                        break;
+                    }
+                }
+            }
+            var file = zipFs.getPath("/", locale, relativePath);
+            if (!filled.isEmpty()) {
+                filledKeys.put(file.toString(), List.copyOf(filled));
+            }
+            if (filled.isEmpty() && stale.getOrDefault(locale, 0) == 0) {
+                continue;
+            }
+            if (filled.isEmpty()) {
+                System.err.println("Cleared " + stale.get(locale) + " fallback entries of " + locale + "/"
+                    + relativePath);
+            } else {
+                System.err.println("Filled " + filled.size() + " entries of " + locale + "/" + relativePath
+                    + " from fallbacks");
+            }
+            Files.createDirectories(file.getParent());
+            try (var output = Files.newOutputStream(file)) {
+                format.write(resolved, layouts.getOrDefault(locale, List.of(sourceLayout)), output);
+            }
+        }
+        return filledKeys;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import org.enginehub.crowdin.client.SimpleCrowdin;
+import org.enginehub.crowdin.client.response.FileInfo;
+import org.enginehub.crowdin.client.response.Language;
+import org.enginehub.crowdin.client.response.LanguageTranslation;
+import org.enginehub.crowdin.client.response.SourceString;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Brings the translations of a previous bundle up to date through Crowdin's string and translation
+ * APIs, instead of building and downloading a whole export. Only translations made since the
+ * previous sync are applied, so removed translations stay until the next full build.
+ *
+ * <p>
+ * A translation is applied by when it was made, not when it was chosen. Approving a translation
+ * older than the previous sync, which makes it the one exported in place of a newer one, is
+ * missed until the next full build. So are changes to languages left out of {@link #directories}
+ * because their progress counts stayed the same.
+ * </p>
+ *
+ * @param since when the previous bundle's translations were fetched
+ * @param directories the bundle directory of each Crowdin language ID to fetch
+ */
+record IncrementalSync(Instant since, Map<String, String> directories) {
+
+    // Crowdin's clock and ours differ a little, and applying a translation twice is harmless
+    private static final Duration CLOCK_MARGIN = Duration.ofMinutes(5);
+
+    // The codes Crowdin export patterns name language directories by, most specific first
+    private static final List<Function<Language, String>> CODES = List.of(
+        Language::id,
+        Language::locale,
+        language -> language.locale().replace('-', '_'),
+        Language::twoLettersCode,
+        Language::threeLettersCode,
+        Language::androidCode,
+        Language::osxCode,
+        Language::osxLocale
+    );
+
+    /**
+     * Work out which directory holds each language, from the code that names every directory of the
+     * previous bundle.
+     *
+     * @return the directories by language ID, or empty if no code names them all
+     */
+    static Optional<Map<String, String>> directories(List<Language> languages, Set<String> bundleDirectories) {
+        for (var code : CODES) {
+            var directories = new HashMap<String, String>();
+            for (var language : languages) {
+                directories.put(language.id(), code.apply(language));
+            }
+            var unique = new HashSet<>(directories.values()).size() == directories.size();
+            if (unique && directories.values().containsAll(bundleDirectories)) {
+                return Optional.of(Map.copyOf(directories));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param translations the translations made since {@link #since}, by language ID
+     */
+    private record FileChanges(FileInfo file, TranslationFormat format, Map<Long, String> identifiers,
+                               Map<String, List<LanguageTranslation>> translations) {
+    }
+
+    /**
+     * Fetch the translations of {@code files} in every language, and apply the ones made since
+     * {@link #since} to {@code bundle}. Each page is reduced as it arrives, so only the recent
+     * translations are held until they are written.
+     */
+    CompletableFuture<Void> apply(SimpleCrowdin crowdinClient, Path bundle, List<FileInfo> files) {
+        var after = since.minus(CLOCK_MARGIN);
+        var fetches = new ArrayList<CompletableFuture<FileChanges>>();
+        for (var file : files) {
+            var format = TranslationFormat.forPath(file.path());
+            if (format.isEmpty()) {
+                System.err.println("Not syncing " + file.path() + ", which is in no known format");
+                continue;
+            }
+            // A listing hands over its pages one after another, so each can fill a plain collection
+            var identifiers = new HashMap<Long, String>();
+            var listings = new ArrayList<CompletableFuture<Void>>();
+            listings.add(crowdinClient.listStringsAsync(file.id(), page -> {
+                for (SourceString string : page) {
+                    identifiers.put(string.id(), string.identifier());
+                }
+                return CompletableFuture.completedFuture(null);
+            }));
+            var translations = new LinkedHashMap<String, List<LanguageTranslation>>();
+            for (var languageId : directories.keySet()) {
+                var recent = new ArrayList<LanguageTranslation>();
+                translations.put(languageId, recent);
+                listings.add(crowdinClient.listLanguageTranslationsAsync(languageId, file.id(), page -> {
+                    for (var translation : page) {
+                        if (translation.text() != null && translation.createdAt().isAfter(after)) {
+                            recent.add(translation);
+                        }
+                    }
+                    return CompletableFuture.completedFuture(null);
+                }));
+            }
+            fetches.add(CompletableFuture.allOf(listings.toArray(CompletableFuture[]::new))
+                .thenApply(v -> new FileChanges(file, format.get(), identifiers, translations)));
+        }
+        return CompletableFuture.allOf(fetches.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            try {
+                write(bundle, fetches.stream().map(CompletableFuture::join).toList());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void write(Path bundle, List<FileChanges> changes) throws IOException {
+        var applied = 0;
+        try (var zipFs = FileSystems.newFileSystem(bundle)) {
+            // Changing one of several identical files must not change the others
+            var manifest = BundleManifest.read(zipFs);
+            if (manifest.isPresent()) {
+                BundleOptimizer.restoreDuplicates(zipFs, manifest.get());
+            }
+            // Keys translated now aren't fallbacks any more, so the next fill must leave them be
+            var fallbacks = new HashMap<>(manifest.map(BundleManifest::fallbacks).orElse(Map.of()));
+            for (var fileChanges : changes) {
+                var relativePath = fileChanges.file().path().replaceFirst("^/+", "");
+                for (var entry : fileChanges.translations().entrySet()) {
+                    var recent = entry.getValue();
+                    if (recent.isEmpty()) {
+                        continue;
+                    }
+                    var path = zipFs.getPath("/", directories.get(entry.getKey()), relativePath);
+                    Map<String, String> messages = new LinkedHashMap<>();
+                    // Keep the file's layout, and the source's for entries new to it, as a build would
+                    var layouts = new ArrayList<byte[]>();
+                    if (Files.exists(path)) {
+                        var content = Files.readAllBytes(path);
+                        layouts.add(content);
+                        try (var input = new ByteArrayInputStream(content)) {
+                            messages = fileChanges.format().read(input);
+                        }
+                    }
+                    var source = zipFs.getPath(fileChanges.file().path());
+                    if (Files.exists(source)) {
+                        layouts.add(Files.readAllBytes(source));
+                    }
+                    var changed = 0;
+                    var filled = new LinkedHashSet<>(fallbacks.getOrDefault(path.toString(), List.of()));
+                    for (var translation : recent) {
+                        var identifier = fileChanges.identifiers().get(translation.stringId());
+                        if (identifier == null) {
+                            continue;
+                        }
+                        filled.remove(identifier);
+                        var text = Objects.requireNonNull(translation.text());
+                        if (!text.equals(messages.put(identifier, text))) {
+                            changed++;
+                        }
+                    }
+                    if (!filled.isEmpty()) {
+                        fallbacks.put(path.toString(), List.copyOf(filled));
+                    } else {
+                        fallbacks.remove(path.toString());
+                    }
+                    if (changed == 0) {
+                        continue;
+                    }
+                    Files.createDirectories(path.getParent());
+                    try (var output = Files.newOutputStream(path)) {
+                        fileChanges.format().write(messages, layouts, output);
+                    }
+                    applied += changed;
+                }
+            }
+            if (manifest.isPresent() && !fallbacks.equals(manifest.get().fallbacks())) {
+                manifest.get().withFallbacks(fallbacks).write(zipFs);
+            }
+        }
+        System.err.println("Applied " + applied + " translations made since " + since);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formats Jackson has a streaming parser for. Nested objects are flattened, joining keys with
+ * {@code .}, so flat files read the same as they always have. Duplicate keys are rejected. Writes
+ * nest keys again as their layout does.
+ */
+record JacksonTranslationFormat(String name, JsonFactory factory, List<String> extensions)
+    implements TranslationFormat {
+
+    @Override
+    public boolean handles(String path) {
+        return extensions.stream().anyMatch(path::endsWith);
+    }
+
+    @Override
+    public Map<String, String> read(InputStream input) throws IOException {
+        var messages = new LinkedHashMap<String, String>();
+        read(input, messages, new HashMap<>());
+        return messages;
+    }
+
+    /**
+     * @param paths receives the names nested to reach each message
+     */
+    private void read(InputStream input, Map<String, String> messages,
+                      Map<String, List<String>> paths) throws IOException {
+        try (var parser = factory.createParser(input)) {
+            parser.enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+            var token = parser.nextToken();
+            if (token == null) {
+                // An empty YAML document
+                return;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected an object of messages, not " + token);
+            }
+            readObject(parser, List.of(), messages, paths);
+        }
+    }
+
+    @Override
+    public void write(Map<String, String> messages, List<byte[]> layouts,
+                      OutputStream output) throws IOException {
+        var paths = new HashMap<String, List<String>>();
+        for (var layout : layouts) {
+            var layoutPaths = new HashMap<String, List<String>>();
+            read(new ByteArrayInputStream(layout), new LinkedHashMap<>(), layoutPaths);
+            layoutPaths.forEach(paths::putIfAbsent);
+        }
+        // Nested maps of the messages, in the order they first appear
+        var tree = new LinkedHashMap<String, Object>();
+        for (var entry : messages.entrySet()) {
+            var path = paths.getOrDefault(entry.getKey(), List.of(entry.getKey()));
+            if (!insert(tree, path, entry.getValue()) && !insert(tree, List.of(entry.getKey()), entry.getValue())) {
+                throw new IOException("Entry '" + entry.getKey() + "' clashes with another");
+            }
+        }
+        try (var generator = factory.createGenerator(output)) {
+            generator.useDefaultPrettyPrinter();
+            writeObject(generator, tree);
+        }
+    }
+
+    /**
+     * @return whether the message could be put at {@code path}, without replacing another
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean insert(Map<String, Object> tree, List<String> path, String message) {
+        var node = tree;
+        for (var name : path.subList(0, path.size() - 1)) {
+            var child = node.computeIfAbsent(name, k -> new LinkedHashMap<String, Object>());
+            if (!(child instanceof Map)) {
+                return false;
+            }
+            node = (Map<String, Object>) child;
+        }
+        return node.putIfAbsent(path.get(path.size() - 1), message) == null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeObject(JsonGenerator generator, Map<String, Object> tree) throws IOException {
+        generator.writeStartObject();
+        for (var entry : tree.entrySet()) {
+            if (entry.getValue() instanceof Map<?, ?> child) {
+                generator.writeFieldName(entry.getKey());
+                writeObject(generator, (Map<String, Object>) child);
+            } else {
+                generator.writeStringField(entry.getKey(), (String) entry.getValue());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static void readObject(JsonParser parser, List<String> prefix, Map<String, String> messages,
+                                   Map<String, List<String>> paths) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var path = new ArrayList<>(prefix);
+            path.add(parser.currentName());
+            var key = String.join(".", path);
+            var token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                readObject(parser, path, messages, paths);
+            } else if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                // Catches flattened keys that clash, e.g. "a.b" and "a": {"b"}
+                if (messages.putIfAbsent(key, parser.getText()) != null) {
+                    throw new JsonParseException(parser, "Duplicate entry '" + key + "'");
+                }
+                paths.put(key, List.copyOf(path));
+            } else {
+                throw new JsonParseException(parser, "Entry '" + key + "' is not a message");
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+/**
+ * What a consumer needs to decide whether to load a translation file, recorded in the
+ * {@link BundleManifest}.
+ *
+ * @param locale the language directory the file is in
+ * @param keys how many entries it has
+ * @param coverage the percentage of source entries it translates
+ * @param bytes its size
+ * @param sha256 the hash of its content
+ */
+public record LocaleStats(
+    String locale,
+    int keys,
+    double coverage,
+    long bytes,
+    String sha256
+) {
+    /**
+     * @return the coverage of a file with {@code keys} of the {@code sourceKeys} source entries
+     */
+    public static double coverage(int keys, int sourceKeys) {
+        return sourceKeys == 0 ? 100 : Math.round(keys * 1000.0 / sourceKeys) / 10.0;
+    }
+
+    public LocaleStats withKeys(int keys, double coverage) {
+        return new LocaleStats(locale, keys, coverage, bytes, sha256);
+    }
+
+    public LocaleStats withContent(long bytes, String sha256) {
+        return new LocaleStats(locale, keys, coverage, bytes, sha256);
+    }
+}
@@ -20,30 +20,49 @@
 
 package org.enginehub.crowdin;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
 import com.techshroom.jungle.Loaders;
 import com.techshroom.jungle.PropOrEnvConfigOption;
 import com.techshroom.jungle.PropOrEnvNamespace;
 import com.vdurmont.semver4j.Semver;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
+import org.enginehub.crowdin.client.JdkHttpTransport;
+import org.enginehub.crowdin.client.OkHttpTransport;
 import org.enginehub.crowdin.client.SimpleCrowdin;
 import org.enginehub.crowdin.client.request.CreateProjectBuild;
 import org.enginehub.crowdin.client.request.ReplaceFileFromStorage;
+import org.enginehub.crowdin.client.response.Branch;
 import org.enginehub.crowdin.client.response.FileInfo;
 import org.enginehub.crowdin.client.response.ProjectBuild;
+import org.enginehub.crowdin.jfr.PipelinePhaseEvent;
+import org.jetbrains.annotations.Nullable;
+import org.jfrog.artifactory.client.Artifactory;
 import org.jfrog.artifactory.client.ArtifactoryClientBuilder;
 
 import java.io.IOException;
-import java.nio.file.FileSystems;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkState;
@@ -54,6 +73,10 @@ public class Main {
         .subspace("distributor");
     private static final PropOrEnvConfigOption<String> CROWDIN_TOKEN =
         ENV_NAMESPACE.create("token", Loaders.forString(), "");
+    private static final PropOrEnvConfigOption<String> CROWDIN_API_URL =
+        ENV_NAMESPACE.subspace("api").create("url", Loaders.forString(), SimpleCrowdin.DEFAULT_BASE_URL);
+    private static final PropOrEnvConfigOption<String> CROWDIN_TRANSPORT =
+        ENV_NAMESPACE.create("transport", Loaders.forString(), "okhttp");
     private static final PropOrEnvConfigOption<Long> CROWDIN_PROJECT_ID =
         ENV_NAMESPACE.subspace("project").create("id", Loaders.forLong(), Long.MIN_VALUE);
     private static final PropOrEnvConfigOption<Path> SOURCE_FILE =
@@ -68,6 +91,8 @@ public class Main {
         ARTIFACTORY_NAMESPACE.create("url", Loaders.forString(), "");
     private static final PropOrEnvConfigOption<String> ARTIFACTORY_REPO =
         ARTIFACTORY_NAMESPACE.create("repo", Loaders.forString(), "");
+    private static final PropOrEnvConfigOption<String> ARTIFACTORY_MIRRORS =
+        ARTIFACTORY_NAMESPACE.create("mirrors", Loaders.forString(), "");
     private static final PropOrEnvConfigOption<String> ARTIFACTORY_USER =
         ARTIFACTORY_NAMESPACE.create("user", Loaders.forString(), "");
     private static final PropOrEnvConfigOption<String> ARTIFACTORY_PASSWORD =
@@ -76,10 +101,46 @@ public class Main {
         ENV_NAMESPACE.subspace("build").create("number", Loaders.forLong(), Long.MIN_VALUE);
     private static final PropOrEnvConfigOption<Boolean> ONLY_IF_RECENTLY_CHANGED =
         ENV_NAMESPACE.subspace("on").create("change", Loaders.forBoolean(), false);
-
-    private static final ObjectMapper MAPPER = new ObjectMapper();
-
-    private static final MediaType MEDIA_ZIP = MediaType.get("application/zip");
+    private static final PropOrEnvConfigOption<Boolean> REUSE_BUILDS =
+        ENV_NAMESPACE.subspace("reuse").create("builds", Loaders.forBoolean(), true);
+    private static final PropOrEnvConfigOption<Boolean> OPTIMIZE_MINIFY =
+        ENV_NAMESPACE.subspace("optimize").create("minify", Loaders.forBoolean(), false);
+    private static final PropOrEnvConfigOption<Boolean> OPTIMIZE_DROP_SOURCE_IDENTICAL =
+        ENV_NAMESPACE.subspace("optimize").subspace("drop").subspace("source")
+            .create("identical", Loaders.forBoolean(), false);
+    private static final PropOrEnvConfigOption<Boolean> OPTIMIZE_DEDUPE =
+        ENV_NAMESPACE.subspace("optimize").create("dedupe", Loaders.forBoolean(), false);
+    private static final PropOrEnvConfigOption<String> FALLBACK_LOCALES =
+        ENV_NAMESPACE.subspace("fallback").create("locales", Loaders.forString(), "");
+    private static final PropOrEnvConfigOption<String> BRANCHES =
+        ENV_NAMESPACE.create("branches", Loaders.forString(), "");
+    private static final Pattern BRANCH_VERSION = Pattern.compile("\\d+(\\.\\d+)*");
+    private static final PropOrEnvConfigOption<Boolean> PUBLISH_EXPLODED =
+        ENV_NAMESPACE.subspace("publish").create("exploded", Loaders.forBoolean(), false);
+    private static final PropOrEnvConfigOption<Long> PUBLISH_PARALLELISM =
+        ENV_NAMESPACE.subspace("publish").create("parallelism", Loaders.forLong(), 8L);
+    private static final PropOrEnvConfigOption<Long> DEADLINE_MINUTES =
+        ENV_NAMESPACE.subspace("deadline").create("minutes", Loaders.forLong(), 120L);
+    private static final PropOrEnvConfigOption<String> PHASE_DEADLINES =
+        ENV_NAMESPACE.subspace("phase").create("deadlines", Loaders.forString(), "");
+    private static final PropOrEnvConfigOption<String> CHECKPOINT_DIR =
+        ENV_NAMESPACE.subspace("checkpoint").create("dir", Loaders.forString(), "");
+    private static final PropOrEnvConfigOption<Boolean> ALLOW_REMOVED_KEYS =
+        ENV_NAMESPACE.subspace("allow").subspace("removed").create("keys", Loaders.forBoolean(), false);
+    private static final PropOrEnvConfigOption<String> LEASE_DIR =
+        ENV_NAMESPACE.subspace("lease").create("dir", Loaders.forString(), "");
+    private static final PropOrEnvConfigOption<Long> LEASE_TTL_MINUTES =
+        ENV_NAMESPACE.subspace("lease").subspace("ttl").create("minutes", Loaders.forLong(), 5L);
+    private static final PropOrEnvConfigOption<Long> CHECKPOINT_MAX_AGE_HOURS =
+        ENV_NAMESPACE.subspace("checkpoint").subspace("max").subspace("age")
+            .create("hours", Loaders.forLong(), 12L);
+    private static final PropOrEnvConfigOption<Boolean> PARTIAL_BUILDS =
+        ENV_NAMESPACE.subspace("partial").create("builds", Loaders.forBoolean(), false);
+    private static final PropOrEnvConfigOption<Boolean> INCREMENTAL_SYNC =
+        ENV_NAMESPACE.subspace("incremental").create("sync", Loaders.forBoolean(), false);
+    private static final PropOrEnvConfigOption<Long> FULL_BUILD_INTERVAL_HOURS =
+        ENV_NAMESPACE.subspace("full").subspace("build").subspace("interval")
+            .create("hours", Loaders.forLong(), 7L * 24);
 
     private static <T> T require(String commonName, PropOrEnvConfigOption<T> configOption,
                                  Predicate<T> isValid) {
@@ -97,145 +158,623 @@ public class Main {
         var token = require("Token", CROWDIN_TOKEN, t -> !t.isBlank());
         var projectId = require("Project ID", CROWDIN_PROJECT_ID, id -> id != Long.MIN_VALUE);
         checkState(projectId >= 0, "Invalid project ID %s", projectId);
-        var sourceFile = require("Source File", SOURCE_FILE, Files::isRegularFile);
+        var branches = Splitter.on(',').trimResults().omitEmptyStrings().splitToList(BRANCHES.get());
+        // Branches get their sources uploaded by their own jobs
+        var sourceFile = branches.isEmpty() ? require("Source File", SOURCE_FILE, Files::isRegularFile) : null;
+        SourcePreflight.Baseline baseline = null;
+        if (sourceFile != null) {
+            var preflight = Phase.start("Source pre-flight");
+            var checkpointDirectory = CHECKPOINT_DIR.get();
+            baseline = SourcePreflight.check(
+                sourceFile,
+                checkpointDirectory.isBlank() ? null : Path.of(checkpointDirectory),
+                ALLOW_REMOVED_KEYS.get() == Boolean.TRUE
+            );
+            preflight.end(null);
+        }
+
+        var apiUrl = require("API URL", CROWDIN_API_URL, u -> !u.isBlank());
+
+        var transportName = require(
+            "Transport", CROWDIN_TRANSPORT, t -> t.equals("okhttp") || t.equals("jdk")
+        );
+
+        var runDeadline = DEADLINE_MINUTES.get();
+        checkState(runDeadline >= 0, "Invalid deadline %s", runDeadline);
+        var phaseDeadlines = Deadlines.parsePhases(PHASE_DEADLINES.get());
+        checkState(PUBLISH_PARALLELISM.get() > 0, "Invalid publish parallelism %s", PUBLISH_PARALLELISM.get());
+        var fallbacks = FallbackLocales.parse(FALLBACK_LOCALES.get());
+        checkState(
+            !fallbacks.enabled() || OPTIMIZE_DROP_SOURCE_IDENTICAL.get() != Boolean.TRUE,
+            "Fallback locales are filled with source text, which dropping source-identical entries removes"
+        );
+
+        var sourceBaseline = baseline;
+        var runPhase = Phase.start("Run");
+        Optional<String> expiredPhase;
+        try (var transport = transportName.equals("jdk") ? JdkHttpTransport.create() : OkHttpTransport.create();
+             var crowdinClient = new SimpleCrowdin(apiUrl, token, projectId, transport)) {
+            var deadlines = new Deadlines(
+                crowdinClient, runDeadline == 0 ? null : Duration.ofMinutes(runDeadline), phaseDeadlines
+            );
+            // Run on a separate thread, so this one can give up on it when a deadline passes
+            var run = CompletableFuture.runAsync(() -> {
+                try {
+                    if (sourceFile == null) {
+                        distributeBranches(crowdinClient, deadlines, branches);
+                    } else {
+                        distribute(
+                            crowdinClient, deadlines, sourceFile, sourceBaseline, openLease(projectId, sourceFile)
+                        );
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, task -> Thread.ofPlatform().name("distributor").daemon().start(task));
+            var outcome = run.thenApply(v -> Optional.<String>empty()).exceptionallyCompose(error -> {
+                // The run failing because a deadline cancelled it is not a failure of its own
+                if (deadlines.expiring()) {
+                    return deadlines.expired().thenApply(Optional::of);
+                }
+                return CompletableFuture.failedFuture(error);
+            });
+            expiredPhase = await(outcome.applyToEither(
+                deadlines.expired().thenApply(Optional::of), Function.identity()
+            ));
+            deadlines.finish();
+        } finally {
+            runPhase.end(null);
+        }
+        if (expiredPhase.isPresent()) {
+            System.err.println("Gave up, the deadline for " + expiredPhase.get() + " passed");
+            System.exit(Deadlines.EXIT_CODE);
+        }
+    }
+
+    /**
+     * @return the lease for building this content of the source in this project
+     */
+    private static BuildLease openLease(long projectId, Path sourceFile) throws IOException {
+        var leaseDirectory = LEASE_DIR.get();
+        var ttl = LEASE_TTL_MINUTES.get();
+        checkState(ttl > 0, "Invalid lease TTL %s", ttl);
+        return BuildLease.open(
+            leaseDirectory.isBlank() ? null : Path.of(leaseDirectory),
+            projectId + "-" + ValidationCache.hash(Files.readAllBytes(sourceFile)),
+            Duration.ofMinutes(ttl)
+        );
+    }
 
-        var crowdinClient = new SimpleCrowdin(token, projectId);
+    private static void distribute(SimpleCrowdin crowdinClient, Deadlines deadlines, Path sourceFile,
+                                   SourcePreflight.@Nullable Baseline baseline,
+                                   BuildLease lease) throws IOException {
+        var leasePhase = Phase.start("Lease");
+        var otherResult = lease.acquireOrAwait();
+        leasePhase.end(null);
+        if (otherResult.isPresent()) {
+            System.err.println("A concurrent run already " + otherResult.get());
+            return;
+        }
+        String result = null;
+        try {
+            result = buildAndPublish(crowdinClient, deadlines, sourceFile, baseline);
+        } finally {
+            lease.release(result);
+        }
+    }
+
+    /**
+     * @param baseline saved once the source is published, so a failed run doesn't move it
+     * @return what came of it, for runs waiting on the lease
+     */
+    private static String buildAndPublish(SimpleCrowdin crowdinClient, Deadlines deadlines, Path sourceFile,
+                                          SourcePreflight.@Nullable Baseline baseline) throws IOException {
+        var checkpointDirectory = CHECKPOINT_DIR.get();
+        var checkpoints = CheckpointStore.open(
+            checkpointDirectory.isBlank() ? null : Path.of(checkpointDirectory),
+            sourceFile,
+            Duration.ofHours(CHECKPOINT_MAX_AGE_HOURS.get())
+        );
+        var resumed = checkpoints.current();
+
+        // Nothing here depends on Crowdin, so it runs alongside the rest of the pipeline
+        var publishTargets = timed(deadlines, "Prepare publish target", () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return preparePublishTargets();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+
+        CompletableFuture<Optional<Instant>> sourceUploaded;
+        if (resumed.sourceUploaded()) {
+            System.err.println("Source was already uploaded by a previous attempt");
+            sourceUploaded = CompletableFuture.completedFuture(Optional.ofNullable(resumed.sourceUploadedAt()));
+        } else {
+            sourceUploaded = timed(deadlines, "Upload source", () -> uploadSourceToCrowdin(crowdinClient, sourceFile))
+                .thenApply(uploadedAt -> {
+                    checkpoints.update(c -> c.withSourceUploaded(uploadedAt.orElse(null)));
+                    return uploadedAt;
+                });
+        }
 
-        uploadSourceToCrowdin(crowdinClient, sourceFile);
+        CompletableFuture<Path> patchedBundle;
+        var resumedPatched = checkpoints.validFile(CheckpointStore.PATCHED_FILE, resumed.patchedSha256());
+        if (resumedPatched.isPresent()) {
+            System.err.println("Resuming with the patched bundle from a previous attempt");
+            patchedBundle = CompletableFuture.completedFuture(resumedPatched.get());
+        } else {
+            // The source files don't depend on the build, so fetch them while it runs
+            var sourceFiles = sourceUploaded.thenCompose(v -> timed(
+                deadlines, "Prefetch source files", () -> prefetchSourceFiles(crowdinClient, null)
+            ));
+            var previousBundle = publishTargets.thenApplyAsync(targets -> {
+                if (PARTIAL_BUILDS.get() != Boolean.TRUE && INCREMENTAL_SYNC.get() != Boolean.TRUE) {
+                    return Optional.<Path>empty();
+                }
+                try {
+                    return targets.get(0).downloadPrevious();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            var sourceUploadedAt = await(sourceUploaded);
 
-        if (ONLY_IF_RECENTLY_CHANGED.get() == Boolean.TRUE) {
             var project = crowdinClient.getProject();
             var lastActivity = project.lastActivity();
-            if (lastActivity.isBefore(Instant.now().minus(1, ChronoUnit.DAYS))) {
-                System.err.println("Not proceeding with build, last activity was at " + lastActivity);
-                return;
+            if (ONLY_IF_RECENTLY_CHANGED.get() == Boolean.TRUE) {
+                if (lastActivity.isBefore(Instant.now().minus(1, ChronoUnit.DAYS))) {
+                    System.err.println("Not proceeding with build, last activity was at " + lastActivity);
+                    deleteSourceFiles(await(sourceFiles));
+                    checkpoints.clear();
+                    return "skipped the build, last activity was at " + lastActivity;
+                }
+            }
+
+            var notBefore = sourceUploadedAt.filter(lastActivity::isBefore).orElse(lastActivity);
+            CompletableFuture<BuildPlan> plan;
+            var resumedRequest = resumed.buildRequest();
+            if (resumedRequest != null) {
+                plan = previousBundle.thenApply(previous -> BuildPlanner.resume(
+                    resumedRequest, Objects.requireNonNull(resumed.manifest()), previous
+                ));
+            } else {
+                // Snapshot the progress before building, so anything translated meanwhile is rebuilt next time
+                plan = previousBundle.thenCombine(crowdinClient.listLanguageProgressAsync(), (previous, progress) -> {
+                    BuildPlan newPlan;
+                    try {
+                        newPlan = planner().plan(
+                            previous, progress, project.targetLanguages(), sourceUploadedAt.isPresent()
+                        );
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    var request = newPlan.request();
+                    if (request != null) {
+                        checkpoints.update(c -> c.withPlan(request, newPlan.manifest()));
+                    }
+                    return newPlan;
+                });
             }
+            var bundle = plan.thenCompose(p -> {
+                var sync = p.sync();
+                if (sync == null) {
+                    return produceBundle(crowdinClient, deadlines, p, notBefore, checkpoints);
+                }
+                var base = Objects.requireNonNull(p.base());
+                return sourceFiles.thenCompose(files -> timed(deadlines, "Sync", () -> sync.apply(
+                    crowdinClient, base, files.stream().map(SourceFile::info).toList()
+                ))).thenApply(v -> new UnpatchedBundle(base, p));
+            });
+            patchedBundle = bundle.thenCombine(sourceFiles, (unpatched, files) -> timed(deadlines, "Patch", () -> {
+                try {
+                    return CompletableFuture.completedFuture(patcher().patch(unpatched, files, checkpoints));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    deleteSourceFiles(files);
+                }
+            })).thenCompose(Function.identity());
+        }
+        var publishExecutor = newPublishExecutor();
+        try {
+            await(patchedBundle.thenCombine(publishTargets, (file, targets) -> timed(
+                deadlines, "Publish", () -> publish(file, targets, publishExecutor)
+            )).thenCompose(Function.identity()));
+        } finally {
+            publishExecutor.shutdown();
         }
+        checkpoints.clear();
+        if (baseline != null) {
+            baseline.save();
+        }
+        var mainTarget = await(publishTargets).get(0);
+        return "published " + mainTarget.repository() + "/" + mainTarget.path();
+    }
 
-        ProjectBuild build = buildProjectTranslations(crowdinClient);
-        Path temporaryFile = downloadTranslationsBundle(crowdinClient, build);
-        patchInSourceFiles(crowdinClient, temporaryFile);
-        uploadToArtifactory(temporaryFile);
+    /**
+     * Distribute several Crowdin branches at once, each to the version named by the branch. Their
+     * sources are not uploaded, nor partially built.
+     */
+    private static void distributeBranches(SimpleCrowdin crowdinClient, Deadlines deadlines,
+                                           List<String> branchNames) throws IOException {
+        var publishTargets = timed(deadlines, "Prepare publish target", () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return preparePublishTargets();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        var branches = await(crowdinClient.listBranchesAsync()).stream()
+            .collect(Collectors.toMap(Branch::name, Function.identity()));
+        var unknown = branchNames.stream().filter(name -> !branches.containsKey(name)).toList();
+        checkState(unknown.isEmpty(), "Unknown Crowdin branches %s", unknown);
+        var notBefore = crowdinClient.getProject().lastActivity();
+        var targets = await(publishTargets);
+
+        // Shared by the branches, so the uploads stay bounded however many publish at once
+        var publishExecutor = newPublishExecutor();
+        var results = new LinkedHashMap<String, CompletableFuture<@Nullable Throwable>>();
+        try {
+            for (var name : branchNames) {
+                results.put(name, timed(
+                    deadlines, "Branch " + name,
+                    () -> distributeBranch(
+                        crowdinClient, deadlines, branches.get(name), notBefore, targets, publishExecutor
+                    )
+                ).handle((result, error) -> {
+                    if (error != null) {
+                        System.err.println("Failed to distribute branch " + name + ": " + error);
+                    }
+                    return error;
+                }));
+            }
+            await(CompletableFuture.allOf(results.values().toArray(CompletableFuture[]::new)));
+        } finally {
+            publishExecutor.shutdown();
+        }
+        var failed = results.entrySet().stream()
+            .filter(entry -> entry.getValue().join() != null)
+            .map(Map.Entry::getKey)
+            .toList();
+        checkState(failed.isEmpty(), "Distributing branches %s failed", failed);
     }
 
-    private static void uploadSourceToCrowdin(SimpleCrowdin crowdinClient, Path sourceFile) {
-        var name =  sourceFile.getFileName().toString();
-        System.err.println("Checking for existing " + name + " file...");
-        var fileId = crowdinClient.listFiles()
-            .filter(fileInfo -> fileInfo.path().equals("/" + name))
-            .findFirst()
-            .orElseThrow(() -> new IllegalStateException("No file already present as " + name))
-            .id();
-        System.err.println("Found " + fileId + " for " + name);
-        System.err.println("Uploading local content to storage...");
-        var storage = crowdinClient.createStorage(
-            name,
-            RequestBody.create(sourceFile.toFile(), MediaType.get("application/octet-stream"))
+    private static CompletableFuture<Void> distributeBranch(SimpleCrowdin crowdinClient, Deadlines deadlines,
+                                                           Branch branch, Instant notBefore,
+                                                           List<PublishTarget> targets,
+                                                           ExecutorService publishExecutor) {
+        var version = branchVersion(branch.name(), targets.get(0).version());
+        System.err.println("Distributing branch " + branch.name() + " as version " + version);
+        var branchTargets = targets.stream().map(target -> target.withVersion(version)).toList();
+        var checkpoints = CheckpointStore.disabled();
+        // No counts, so a later partial build of the same version rebuilds every language
+        var plan = new BuildPlan(
+            new CreateProjectBuild(true).withBranchId(branch.id()), null,
+            new BundleManifest(Instant.now(), Map.of())
         );
-        System.err.println("Created storage " + storage.id() + " for " + name);
-        System.err.println("Replacing " + fileId + " with content in " + storage.id());
-        crowdinClient.updateFile(fileId, new ReplaceFileFromStorage(storage.id()));
-        System.err.println("Replaced!");
+        var sourceFiles = prefetchSourceFiles(crowdinClient, branch);
+        return produceBundle(crowdinClient, deadlines, plan, notBefore, checkpoints)
+            .thenCombine(sourceFiles, (unpatched, files) -> {
+                try {
+                    return patcher().patch(unpatched, files, checkpoints);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    deleteSourceFiles(files);
+                }
+            })
+            .thenCompose(file -> publish(file, branchTargets, publishExecutor));
     }
 
-    private static ProjectBuild buildProjectTranslations(SimpleCrowdin crowdinClient) {
-        var build = crowdinClient.buildProjectTranslation(new CreateProjectBuild(
-            true
-        ));
-        int last = -1;
-        while (build.status().compareTo(ProjectBuild.Status.IN_PROGRESS) <= 0) {
-            if (last != build.progress()) {
-                last = build.progress();
-                System.err.println("Building... " + last + "% done");
-            }
-            build = crowdinClient.checkProjectBuildStatus(build.id());
+    /**
+     * @return the version in {@code branchName}, e.g. {@code 7.3} for {@code version/7.3.x}, or
+     *     {@code fallback} if it has none
+     */
+    private static String branchVersion(String branchName, String fallback) {
+        var matcher = BRANCH_VERSION.matcher(branchName);
+        return matcher.find() ? matcher.group() : fallback;
+    }
+
+    /**
+     * @return the executor bounding the uploads of every {@link #publish} it is passed to
+     */
+    private static ExecutorService newPublishExecutor() {
+        return Executors.newFixedThreadPool(Math.toIntExact(PUBLISH_PARALLELISM.get()));
+    }
+
+    /**
+     * Upload {@code file} to every target at once. A failing target doesn't stop the others, but
+     * fails the run once they are done.
+     */
+    private static CompletableFuture<Void> publish(Path file, List<PublishTarget> targets,
+                                                   ExecutorService executor) {
+        PreparedBundle bundle;
+        try {
+            bundle = PreparedBundle.prepare(file, PUBLISH_EXPLODED.get() == Boolean.TRUE);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+        var results = new ArrayList<CompletableFuture<@Nullable Throwable>>();
+        for (var target : targets) {
+            var start = System.nanoTime();
+            results.add(target.publish(bundle, executor).handle((result, error) -> {
+                var elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+                if (error == null) {
+                    System.err.println("Published to " + target.describe() + " in " + elapsed + "ms");
+                } else {
+                    System.err.println(
+                        "Failed to publish to " + target.describe() + " after " + elapsed + "ms: " + error
+                    );
+                }
+                return error;
+            }));
         }
-        if (build.status() != ProjectBuild.Status.FINISHED) {
-            System.err.println("Build failed :( " + build.status());
-            System.exit(1);
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            var failures = results.stream().map(CompletableFuture::join).filter(Objects::nonNull).count();
+            checkState(failures == 0, "Publishing failed for %s of %s targets", failures, targets.size());
+        }).whenComplete((result, error) -> bundle.close());
+    }
+
+    /**
+     * Start {@code stage} and log how long it takes to complete, for finding where a slow run
+     * spent its time.
+     */
+    private static <T> CompletableFuture<T> timed(Deadlines deadlines, String phase,
+                                                  Supplier<CompletableFuture<T>> stage) {
+        var timing = Phase.start(phase);
+        CompletableFuture<T> future;
+        try {
+            future = stage.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
         }
-        System.err.println("Built translations entirely!");
-        return build;
+        return deadlines.guard(phase, future.whenComplete((result, error) -> timing.end(error)));
     }
 
-    private static Path downloadTranslationsBundle(SimpleCrowdin crowdinClient, ProjectBuild build) throws IOException {
-        System.err.println("Downloading translations bundle...");
-        Path temporaryFile;
-        try (var response = crowdinClient.downloadProjectTranslations(build.id())) {
-            var body = Objects.requireNonNull(response.body());
-            checkState(
-                MEDIA_ZIP.equals(body.contentType()),
-                "Invalid Content-type: %s", body.contentType()
+    /**
+     * A running phase, logged and recorded as a {@link PipelinePhaseEvent} when it ends.
+     */
+    private record Phase(String name, long start, PipelinePhaseEvent event) {
+        static Phase start(String name) {
+            var event = new PipelinePhaseEvent();
+            event.begin();
+            return new Phase(name, System.nanoTime(), event);
+        }
+
+        void end(@Nullable Throwable error) {
+            var elapsed = Duration.ofNanos(System.nanoTime() - start);
+            System.err.println(
+                "[timing] " + name + (error == null ? "" : " (failed)") + ": " + elapsed.toMillis() + "ms"
             );
-            temporaryFile = Files.createTempFile("crowdin-distributor-package", ".zip");
-            try (var output = Files.newOutputStream(temporaryFile)) {
-                body.byteStream().transferTo(output);
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.failed = error != null;
+                event.commit();
             }
         }
-        System.err.println("Downloaded translations bundle.");
-        return temporaryFile;
     }
 
-    private static void patchInSourceFiles(SimpleCrowdin crowdinClient, Path temporaryFile) throws IOException {
-        System.err.println("Patching in source files...");
-        try (var zipFs = FileSystems.newFileSystem(temporaryFile)) {
-            for (FileInfo fileInfo : crowdinClient.listFiles().collect(Collectors.toList())) {
-                String path = fileInfo.path();
-                System.err.println("Patching in " + path);
-                Path zipFsPath = zipFs.getPath(path);
-                try (var response = crowdinClient.downloadFile(fileInfo.id())) {
-                    var body = Objects.requireNonNull(response.body());
-                    try (var output = zipFs.provider().newOutputStream(zipFsPath)) {
-                        body.byteStream().transferTo(output);
-                    }
+    /**
+     * Wait for {@code future}, rethrowing whatever it failed with.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            Throwables.throwIfUnchecked(cause);
+            throw e;
+        }
+    }
+
+    /**
+     * @return when the source was replaced, or empty if Crowdin already had identical content
+     */
+    private static CompletableFuture<Optional<Instant>> uploadSourceToCrowdin(SimpleCrowdin crowdinClient,
+                                                                              Path sourceFile) {
+        var name = sourceFile.getFileName().toString();
+        System.err.println("Checking for existing " + name + " file...");
+        return crowdinClient.listFilesAsync()
+            .thenApply(files -> {
+                var id = files.stream()
+                    .filter(fileInfo -> fileInfo.path().equals("/" + name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No file already present as " + name))
+                    .id();
+                System.err.println("Found " + id + " for " + name);
+                return id;
+            })
+            .thenCompose(fileId -> crowdinClient.downloadFileAsync(fileId).thenCompose(response -> {
+                boolean unchanged;
+                try (response) {
+                    var remote = Objects.requireNonNull(response.body()).bytes();
+                    unchanged = Arrays.equals(remote, Files.readAllBytes(sourceFile));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-                if (zipFsPath.toString().endsWith(".json")) {
-                    System.err.println("Validating JSON language file " + path);
-                    Map<String, String> data = MAPPER.readValue(
-                        Files.readString(zipFsPath),
-                        new TypeReference<>() {
-                        }
-                    );
-                    var validator = new TranslationValidator(data);
-                    checkState(
-                        validateTree(zipFs.getPath("/"), path, validator),
-                        "Validation failures occurred"
-                    );
+                if (unchanged) {
+                    // Skipping this keeps lastActivity unchanged, so an existing build can be reused
+                    System.err.println("Crowdin already has the local content of " + name);
+                    return CompletableFuture.completedFuture(Optional.empty());
                 }
+                return replaceSource(crowdinClient, sourceFile, name, fileId)
+                    .thenApply(v -> Optional.of(Instant.now()));
+            }));
+    }
+
+    private static CompletableFuture<Void> replaceSource(SimpleCrowdin crowdinClient, Path sourceFile,
+                                                         String name, long fileId) {
+        System.err.println("Uploading local content to storage...");
+        return crowdinClient.createStorageAsync(
+            name,
+            RequestBody.create(sourceFile.toFile(), MediaType.get("application/octet-stream"))
+        ).thenCompose(storage -> {
+            System.err.println("Created storage " + storage.id() + " for " + name);
+            System.err.println("Replacing " + fileId + " with content in " + storage.id());
+            return crowdinClient.updateFileAsync(fileId, new ReplaceFileFromStorage(storage.id()));
+        }).thenRun(() -> System.err.println("Replaced!"));
+    }
+
+    private static CompletableFuture<UnpatchedBundle> produceBundle(SimpleCrowdin crowdinClient,
+                                                                    Deadlines deadlines, BuildPlan plan,
+                                                                    Instant notBefore, CheckpointStore checkpoints) {
+        var request = plan.request();
+        if (request == null) {
+            return CompletableFuture.completedFuture(new UnpatchedBundle(Objects.requireNonNull(plan.base()), plan));
+        }
+        try {
+            var resumedBundle = checkpoints.validFile(
+                CheckpointStore.BUNDLE_FILE, checkpoints.current().bundleSha256()
+            );
+            if (resumedBundle.isPresent()) {
+                System.err.println("Resuming with the bundle downloaded by a previous attempt");
+                return CompletableFuture.completedFuture(new UnpatchedBundle(resumedBundle.get(), plan));
             }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
         }
-        System.err.println("Patching complete!");
+        return timed(deadlines, "Build", () -> startBuild(crowdinClient, request, notBefore, checkpoints)
+            .thenCompose(build -> deadlines.trackBuild(build, awaitBuild(crowdinClient, build, -1))))
+            .thenCompose(build -> timed(
+                deadlines, "Download", () -> downloadTranslationsBundle(crowdinClient, build, checkpoints)
+            ))
+            .thenApply(file -> new UnpatchedBundle(file, plan));
     }
 
-    private static boolean validateTree(Path root, String sourceFilePath,
-                                        TranslationValidator validator) throws IOException {
-        var sourcePathRelative = root.getFileSystem().getPath(
-            sourceFilePath.replaceFirst("^/+", "")
-        );
-        var success = true;
-        try (var files = Files.list(root)
-            .filter(Files::isDirectory)
-            .map(p -> p.resolve(sourcePathRelative))
-            .filter(Files::exists)) {
-            for (var iter = files.iterator(); iter.hasNext(); ) {
-                var next = iter.next();
-                System.err.println("==> Against " + next);
-                Map<String, String> data = MAPPER.readValue(
-                    Files.readString(next),
-                    new TypeReference<>() {
-                    }
-                );
-                var failure = validator.validate(next.toString(), data);
-                if (failure != null) {
-                    System.err.println(failure);
-                    success = false;
+    /**
+     * Start a build for {@code request}, or pick up a suitable one that already exists.
+     */
+    private static CompletableFuture<ProjectBuild> startBuild(SimpleCrowdin crowdinClient,
+                                                              CreateProjectBuild request, Instant notBefore,
+                                                              CheckpointStore checkpoints) {
+        var resumedBuildId = checkpoints.current().buildId();
+        if (resumedBuildId != null) {
+            return crowdinClient.checkProjectBuildStatusAsync(resumedBuildId).thenCompose(build -> {
+                if (build.status() == ProjectBuild.Status.CANCELED || build.status() == ProjectBuild.Status.FAILED) {
+                    System.err.println("Build " + build.id() + " of a previous attempt is " + build.status());
+                    return planner().createOrReuseBuild(crowdinClient, request, notBefore, checkpoints);
+                }
+                System.err.println("Resuming build " + build.id() + " of a previous attempt");
+                return CompletableFuture.completedFuture(build);
+            });
+        }
+        return planner().createOrReuseBuild(crowdinClient, request, notBefore, checkpoints);
+    }
+
+    private static CompletableFuture<ProjectBuild> awaitBuild(SimpleCrowdin crowdinClient, ProjectBuild build,
+                                                              int last) {
+        if (build.status().compareTo(ProjectBuild.Status.IN_PROGRESS) > 0) {
+            if (build.status() != ProjectBuild.Status.FINISHED) {
+                // Fail the run rather than exit, so a deadline that cancelled the build still gets its exit code
+                return CompletableFuture.failedFuture(new IllegalStateException("Build failed: " + build.status()));
+            }
+            System.err.println("Built translations entirely!");
+            return CompletableFuture.completedFuture(build);
+        }
+        if (last != build.progress()) {
+            System.err.println("Building... " + build.progress() + "% done");
+        }
+        return crowdinClient.checkProjectBuildStatusAsync(build.id())
+            .thenCompose(next -> awaitBuild(crowdinClient, next, build.progress()));
+    }
+
+    private static CompletableFuture<Path> downloadTranslationsBundle(SimpleCrowdin crowdinClient,
+                                                                      ProjectBuild build,
+                                                                      CheckpointStore checkpoints) {
+        System.err.println("Downloading translations bundle...");
+        Path bundleFile;
+        try {
+            bundleFile = checkpoints.file(CheckpointStore.BUNDLE_FILE);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+        return crowdinClient.downloadProjectTranslationsAsync(build.id(), bundleFile).thenApply(v -> {
+            System.err.println("Downloaded translations bundle.");
+            if (checkpoints.enabled()) {
+                try {
+                    var sha256 = CheckpointStore.sha256(bundleFile);
+                    checkpoints.update(c -> c.withBundle(sha256));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
             }
+            return bundleFile;
+        });
+    }
+
+    /**
+     * @param branch the branch to fetch from, or {@code null} for the whole project
+     */
+    private static CompletableFuture<List<SourceFile>> prefetchSourceFiles(SimpleCrowdin crowdinClient,
+                                                                           @Nullable Branch branch) {
+        var listing = branch == null ? crowdinClient.listFilesAsync() : crowdinClient.listFilesAsync(branch.id());
+        return listing.thenCompose(files -> {
+            var downloads = files.stream()
+                .map(fileInfo -> crowdinClient.downloadFileAsync(fileInfo.id()).thenApply(response -> {
+                    try (response) {
+                        var content = Files.createTempFile("crowdin-distributor-source", ".tmp");
+                        try (var output = Files.newOutputStream(content)) {
+                            Objects.requireNonNull(response.body()).byteStream().transferTo(output);
+                        }
+                        System.err.println("Prefetched " + fileInfo.path());
+                        if (branch != null) {
+                            // Branch builds leave out the branch directory, so patch in at the same place
+                            var path = fileInfo.path().replaceFirst("^/" + Pattern.quote(branch.name()) + "/", "/");
+                            return new SourceFile(new FileInfo(fileInfo.id(), path), content);
+                        }
+                        return new SourceFile(fileInfo, content);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }))
+                .toList();
+            return CompletableFuture.allOf(downloads.toArray(CompletableFuture[]::new))
+                .thenApply(v -> downloads.stream().map(CompletableFuture::join).toList());
+        });
+    }
+
+    private static void deleteSourceFiles(List<SourceFile> files) {
+        for (var file : files) {
+            deleteQuietly(file.content());
+        }
+    }
+
+    static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Failed to delete " + file + ": " + e);
         }
-        return success;
     }
 
-    private static void uploadToArtifactory(Path file) throws IOException {
+    private static BuildPlanner planner() {
+        return new BuildPlanner(
+            Duration.ofHours(FULL_BUILD_INTERVAL_HOURS.get()),
+            INCREMENTAL_SYNC.get() == Boolean.TRUE,
+            REUSE_BUILDS.get() == Boolean.TRUE
+        );
+    }
+
+    private static BundlePatcher patcher() {
+        return new BundlePatcher(
+            FallbackLocales.parse(FALLBACK_LOCALES.get()),
+            new BundleOptimizer(
+                OPTIMIZE_MINIFY.get() == Boolean.TRUE,
+                OPTIMIZE_DROP_SOURCE_IDENTICAL.get() == Boolean.TRUE,
+                OPTIMIZE_DEDUPE.get() == Boolean.TRUE
+            )
+        );
+    }
+
+    /**
+     * @return the targets to publish to, the first of which is the main one
+     */
+    private static List<PublishTarget> preparePublishTargets() throws IOException {
         var module = require("Module", MODULE, m -> !m.isBlank());
         var artifactoryUrl = require("Artifactory URL", ARTIFACTORY_URL, u -> !u.isBlank());
         var artifactoryRepo = require("Artifactory Repo", ARTIFACTORY_REPO, r -> !r.isBlank());
@@ -245,24 +784,34 @@ public class Main {
         checkState(buildNumber >= 0, "Invalid project ID %s", buildNumber);
         var gradleData = GradleDerivedData.load();
 
-        var client = ArtifactoryClientBuilder.create()
-            .setUrl(artifactoryUrl)
-            .setUsername(artifactoryUser)
-            .setPassword(artifactoryPassword)
-            .build();
-
         var fixedGroup = gradleData.group().replace('.', '/');
         var fixedVersion = new Semver(gradleData.version()).withClearedSuffixAndBuild().toString();
+        var directory = String.join("/", fixedGroup, module, fixedVersion);
 
-        var path = String.join(
-            "/",
-            fixedGroup, module, fixedVersion,
-            module + "-" + fixedVersion + "+" + buildNumber + ".zip"
-        );
+        // Mirrors are "repo" on the main Artifactory, or "repo@url" on another with the same credentials
+        var targets = new ArrayList<PublishTarget>();
+        targets.add(new PublishTarget(
+            artifactoryClient(artifactoryUrl, artifactoryUser, artifactoryPassword), artifactoryRepo,
+            directory, module, fixedVersion, buildNumber
+        ));
+        for (var mirror : Splitter.on(',').trimResults().omitEmptyStrings().split(ARTIFACTORY_MIRRORS.get())) {
+            var separator = mirror.indexOf('@');
+            var repo = separator == -1 ? mirror : mirror.substring(0, separator);
+            var url = separator == -1 ? artifactoryUrl : mirror.substring(separator + 1);
+            checkState(!repo.isBlank() && !url.isBlank(), "Invalid Artifactory mirror '%s'", mirror);
+            targets.add(new PublishTarget(
+                artifactoryClient(url, artifactoryUser, artifactoryPassword), repo,
+                directory, module, fixedVersion, buildNumber
+            ));
+        }
+        return targets;
+    }
 
-        client.repository(artifactoryRepo)
-            .upload(path, file.toFile())
-            .bySha1Checksum()
-            .doUpload();
+    private static Artifactory artifactoryClient(String url, String user, String password) {
+        return ArtifactoryClientBuilder.create()
+            .setUrl(url)
+            .setUsername(user)
+            .setPassword(password)
+            .build();
     }
 }
@@ -0,0 +1,142 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A bundle with everything computed that does not depend on where it goes, so that publishing it
+ * to several {@link PublishTarget}s only uploads.
+ *
+ * @param sha1 checksum of {@code file}, which Artifactory deploys by
+ * @param exploded the bundle extracted for an exploded upload, if requested
+ */
+record PreparedBundle(Path file, String sha1, @Nullable Exploded exploded) implements AutoCloseable {
+
+    /**
+     * Lists the files of an exploded bundle, stored at its root.
+     */
+    static final String EXPLODED_INDEX = "index.json";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * A file of an exploded bundle. Artifactory uses the SHA-1 as the ETag.
+     *
+     * @param gzipSize the size of the {@code .gz} variant next to it
+     */
+    record ExplodedFile(long size, String sha1, String sha256, String etag,
+                       long gzipSize, String gzipSha1, String gzipEtag) {
+    }
+
+    /**
+     * @param root the extracted files, each with a {@code .gz} variant, and the
+     *     {@value EXPLODED_INDEX}
+     * @param index the files by their path relative to {@code root}
+     */
+    record Exploded(Path root, Map<String, ExplodedFile> index) {
+    }
+
+    static PreparedBundle prepare(Path file, boolean explode) throws IOException {
+        var sha1 = sha1(file);
+        if (!explode) {
+            return new PreparedBundle(file, sha1, null);
+        }
+        var root = Files.createTempDirectory("crowdin-distributor-exploded");
+        try {
+            var index = new TreeMap<String, ExplodedFile>();
+            for (var extracted : extract(file, root)) {
+                var gzip = extracted.resolveSibling(extracted.getFileName() + ".gz");
+                try (var output = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+                    Files.copy(extracted, output);
+                }
+                var fileSha1 = sha1(extracted);
+                var gzipSha1 = sha1(gzip);
+                index.put(root.relativize(extracted).toString().replace('\\', '/'), new ExplodedFile(
+                    Files.size(extracted), fileSha1, CheckpointStore.sha256(extracted), '"' + fileSha1 + '"',
+                    Files.size(gzip), gzipSha1, '"' + gzipSha1 + '"'
+                ));
+            }
+            MAPPER.writeValue(root.resolve(EXPLODED_INDEX).toFile(), index);
+            return new PreparedBundle(file, sha1, new Exploded(root, index));
+        } catch (IOException | RuntimeException e) {
+            MoreFiles.deleteRecursively(root, RecursiveDeleteOption.ALLOW_INSECURE);
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("deprecation") // Artifactory identifies files by SHA-1
+    private static String sha1(Path file) throws IOException {
+        return MoreFiles.asByteSource(file).hash(Hashing.sha1()).toString();
+    }
+
+    /**
+     * Extract {@code bundle} into {@code target}, bringing back the duplicates left out of it.
+     *
+     * @return the extracted files
+     */
+    private static List<Path> extract(Path bundle, Path target) throws IOException {
+        var files = new ArrayList<Path>();
+        try (var zipFs = FileSystems.newFileSystem(bundle);
+             var paths = Files.walk(zipFs.getPath("/"))) {
+            var duplicates = BundleManifest.read(zipFs).map(BundleManifest::duplicates).orElse(Map.of());
+            for (var iter = paths.filter(Files::isRegularFile).iterator(); iter.hasNext(); ) {
+                var next = iter.next();
+                var destination = target.resolve(next.toString().replaceFirst("^/+", ""));
+                Files.createDirectories(destination.getParent());
+                Files.copy(next, destination);
+                files.add(destination);
+            }
+            for (var entry : duplicates.entrySet()) {
+                var destination = target.resolve(entry.getKey().replaceFirst("^/+", ""));
+                Files.createDirectories(destination.getParent());
+                Files.copy(zipFs.getPath(entry.getValue()), destination);
+                files.add(destination);
+            }
+        }
+        return files;
+    }
+
+    @Override
+    public void close() {
+        if (exploded != null) {
+            try {
+                MoreFiles.deleteRecursively(exploded.root(), RecursiveDeleteOption.ALLOW_INSECURE);
+            } catch (IOException e) {
+                System.err.println("Failed to delete " + exploded.root() + ": " + e);
+            }
+        }
+    }
+}
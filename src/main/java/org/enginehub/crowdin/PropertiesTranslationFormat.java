@@ -0,0 +1,161 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Java properties files, read as UTF-8 like {@link java.util.ResourceBundle} does. Duplicate keys
+ * are rejected, rather than the last one winning. Writes keep the comments and order of their
+ * layout.
+ */
+final class PropertiesTranslationFormat implements TranslationFormat {
+
+    @Override
+    public String name() {
+        return "properties";
+    }
+
+    @Override
+    public boolean handles(String path) {
+        return path.endsWith(".properties");
+    }
+
+    @Override
+    public Map<String, String> read(InputStream input) throws IOException {
+        var duplicates = new ArrayList<Object>();
+        var properties = new Properties() {
+            @Override
+            public synchronized Object put(Object key, Object value) {
+                var previous = super.put(key, value);
+                if (previous != null) {
+                    duplicates.add(key);
+                }
+                return previous;
+            }
+        };
+        properties.load(new InputStreamReader(input, StandardCharsets.UTF_8));
+        if (!duplicates.isEmpty()) {
+            throw new IOException("Duplicate entries " + duplicates);
+        }
+        var messages = new LinkedHashMap<String, String>();
+        for (var key : properties.stringPropertyNames()) {
+            messages.put(key, properties.getProperty(key));
+        }
+        return messages;
+    }
+
+    @Override
+    public void write(Map<String, String> messages, List<byte[]> layouts,
+                      OutputStream output) throws IOException {
+        var lines = new ArrayList<String>();
+        var written = new HashSet<String>();
+        if (!layouts.isEmpty()) {
+            // Keep the comments, blank lines and order of the layout, and its entries where they are unchanged
+            for (var line : logicalLines(new String(layouts.get(0), StandardCharsets.UTF_8))) {
+                var trimmed = line.stripLeading();
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("!")) {
+                    lines.add(line);
+                    continue;
+                }
+                var entry = new Properties();
+                entry.load(new StringReader(line));
+                var key = entry.stringPropertyNames().iterator().next();
+                var message = messages.get(key);
+                if (message == null || !written.add(key)) {
+                    continue;
+                }
+                lines.add(message.equals(entry.getProperty(key)) ? line : format(key, message));
+            }
+        }
+        messages.keySet().stream()
+            .filter(key -> !written.contains(key))
+            .sorted()
+            .forEach(key -> lines.add(format(key, messages.get(key))));
+        var content = lines.stream().collect(Collectors.joining("\n", "", "\n"));
+        output.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the lines of {@code text}, with entries continued over several lines joined into one
+     */
+    private static List<String> logicalLines(String text) {
+        var lines = new ArrayList<String>();
+        var current = new StringBuilder();
+        for (var line : text.split("\\r\\n|\\r|\\n", -1)) {
+            if (!current.isEmpty()) {
+                current.append('\n');
+            }
+            current.append(line);
+            var trimmed = current.toString().stripLeading();
+            var comment = trimmed.startsWith("#") || trimmed.startsWith("!");
+            if (comment || trailingBackslashes(line) % 2 == 0) {
+                lines.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (!current.isEmpty()) {
+            lines.add(current.toString());
+        }
+        // A final line break leaves an empty line after it
+        if (!lines.isEmpty() && lines.get(lines.size() - 1).isEmpty()) {
+            lines.remove(lines.size() - 1);
+        }
+        return lines;
+    }
+
+    private static int trailingBackslashes(String line) {
+        var count = 0;
+        while (count < line.length() && line.charAt(line.length() - 1 - count) == '\\') {
+            count++;
+        }
+        return count;
+    }
+
+    private static String format(String key, String message) {
+        var properties = new Properties();
+        properties.setProperty(key, message);
+        var text = new StringWriter();
+        try {
+            properties.store(text, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Drop the timestamp comment, so the same messages always make the same file
+        return text.toString().lines()
+            .filter(line -> !line.startsWith("#"))
+            .collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import org.jfrog.artifactory.client.Artifactory;
+import org.jfrog.artifactory.client.model.Folder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Where a bundle is published: {@code [group]/[module]/[version]/[module]-[version]+[buildNumber].zip}
+ * in an Artifactory repository. It can also be published exploded, with each file next to the ZIP
+ * under {@code [module]-[version]+[buildNumber]/}.
+ */
+record PublishTarget(
+    Artifactory client,
+    String repository,
+    String directory,
+    String module,
+    String version,
+    long buildNumber
+) {
+    String fileName(long buildNumber) {
+        return module + "-" + version + "+" + buildNumber + ".zip";
+    }
+
+    String path() {
+        return directory + "/" + fileName(buildNumber);
+    }
+
+    /**
+     * @return this target for another version of the module, next to this one
+     */
+    PublishTarget withVersion(String version) {
+        var versionsDirectory = directory.substring(0, directory.lastIndexOf('/'));
+        return new PublishTarget(
+            client, repository, versionsDirectory + "/" + version, module, version, buildNumber
+        );
+    }
+
+    String explodedDirectory() {
+        return directory + "/" + fileName(buildNumber).replaceFirst("\\.zip$", "");
+    }
+
+    /**
+     * @return where this target is, for reporting
+     */
+    String describe() {
+        return client.getUri() + " " + repository;
+    }
+
+    /**
+     * Upload {@code bundle}, and its exploded files if it has them. Each upload runs on
+     * {@code executor}, the {@value PreparedBundle#EXPLODED_INDEX} goes last, once everything it
+     * lists is in place.
+     */
+    CompletableFuture<Void> publish(PreparedBundle bundle, Executor executor) {
+        var uploads = new ArrayList<CompletableFuture<Void>>();
+        uploads.add(CompletableFuture.runAsync(() -> upload(path(), bundle.file(), bundle.sha1()), executor));
+        var exploded = bundle.exploded();
+        if (exploded == null) {
+            return uploads.get(0);
+        }
+        exploded.index().forEach((relative, info) -> {
+            var path = explodedDirectory() + "/" + relative;
+            var file = exploded.root().resolve(relative);
+            uploads.add(CompletableFuture.runAsync(() -> upload(path, file, info.sha1()), executor));
+            uploads.add(CompletableFuture.runAsync(
+                () -> upload(path + ".gz", file.resolveSibling(file.getFileName() + ".gz"), info.gzipSha1()),
+                executor
+            ));
+        });
+        return CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new)).thenRunAsync(() -> {
+            client.repository(repository)
+                .upload(explodedDirectory() + "/" + PreparedBundle.EXPLODED_INDEX,
+                    exploded.root().resolve(PreparedBundle.EXPLODED_INDEX).toFile())
+                .bySha1Checksum()
+                .doUpload();
+            System.err.println("Uploaded " + exploded.index().size() + " files to " + explodedDirectory());
+        }, executor);
+    }
+
+    private void upload(String path, Path file, String sha1) {
+        client.repository(repository)
+            .upload(path, file.toFile())
+            .bySha1Checksum(sha1)
+            .doUpload();
+    }
+
+    /**
+     * Download the bundle with the highest build number below ours, if there is one.
+     */
+    Optional<Path> downloadPrevious() throws IOException {
+        var folder = client.repository(repository).folder(directory);
+        if (!folder.exists()) {
+            return Optional.empty();
+        }
+        var namePattern = Pattern.compile(
+            Pattern.quote(module + "-" + version + "+") + "(\\d+)" + Pattern.quote(".zip")
+        );
+        var previous = folder.<Folder>info().getChildren().stream()
+            .filter(item -> !item.isFolder())
+            .map(item -> namePattern.matcher(item.getUri().replaceFirst("^/+", "")))
+            .filter(Matcher::matches)
+            .mapToLong(matcher -> Long.parseLong(matcher.group(1)))
+            .filter(number -> number < buildNumber)
+            .boxed()
+            .max(Comparator.naturalOrder());
+        if (previous.isEmpty()) {
+            return Optional.empty();
+        }
+        var path = directory + "/" + fileName(previous.get());
+        System.err.println("Downloading previous bundle " + path);
+        var temporaryFile = Files.createTempFile("crowdin-distributor-previous", ".zip");
+        try (var input = client.repository(repository).download(path).doDownload()) {
+            Files.copy(input, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return Optional.of(temporaryFile);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Checks the local source file before anything is sent to Crowdin, so that a broken one fails the
+ * run straight away instead of after a build. Rejects files that don't parse, have duplicate keys
+ * or invalid patterns, or lost keys since the last run that passed, unless that is allowed.
+ */
+public final class SourcePreflight {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * The keys of a source that passed, to check the next run against once this one published it.
+     */
+    public record Baseline(Path file, Set<String> keys) {
+
+        public void save() throws IOException {
+            Files.createDirectories(file.getParent());
+            var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            MAPPER.writeValue(temporary.toFile(), keys);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * @param directory where the keys of the last source that passed are kept, or {@code null} to
+     *     not check for removed keys
+     * @return the baseline to save once the source is published, or {@code null} if there is none
+     */
+    public static @Nullable Baseline check(Path sourceFile, @Nullable Path directory,
+                                           boolean allowRemovedKeys) throws IOException {
+        var name = sourceFile.getFileName().toString();
+        var format = TranslationFormat.forPath(name);
+        if (format.isEmpty()) {
+            System.err.println("Not checking " + name + ", which is in no known format");
+            return null;
+        }
+        Map<String, String> data;
+        try (var input = Files.newInputStream(sourceFile)) {
+            data = format.get().read(input);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + sourceFile + ": " + e.getMessage(), e);
+        }
+        var failures = TranslationValidator.checkPatterns(sourceFile.toString(), data);
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException(String.join("\n", failures));
+        }
+        if (directory == null) {
+            return null;
+        }
+        var keysFile = directory.resolve(name + ".keys.json");
+        if (Files.exists(keysFile)) {
+            Set<String> removed = MAPPER.readValue(keysFile.toFile(), new TypeReference<TreeSet<String>>() {
+            });
+            removed.removeAll(data.keySet());
+            if (!removed.isEmpty()) {
+                if (!allowRemovedKeys) {
+                    throw new IllegalStateException(
+                        "Keys were removed from " + name + " since the last run: " + removed
+                    );
+                }
+                System.err.println("Allowing keys removed from " + name + ": " + removed);
+            }
+        }
+        return new Baseline(keysFile, new TreeSet<>(data.keySet()));
+    }
+}
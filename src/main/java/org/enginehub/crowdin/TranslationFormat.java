@@ -0,0 +1,76 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A file type language files come in, read into the flat map of keys to messages that
+ * {@link TranslationValidator} checks.
+ */
+public interface TranslationFormat {
+
+    List<TranslationFormat> ALL = List.of(
+        new JacksonTranslationFormat("JSON", new JsonFactory(), List.of(".json")),
+        new JacksonTranslationFormat("YAML", new YAMLFactory(), List.of(".yml", ".yaml")),
+        new PropertiesTranslationFormat()
+    );
+
+    /**
+     * @return the format of files with this path, if there is one
+     */
+    static Optional<TranslationFormat> forPath(String path) {
+        return ALL.stream().filter(format -> format.handles(path)).findFirst();
+    }
+
+    String name();
+
+    boolean handles(String path);
+
+    /**
+     * Reads the messages of a file, without keeping more of it in memory than the result.
+     */
+    Map<String, String> read(InputStream input) throws IOException;
+
+    /**
+     * Writes messages as {@link #read} reads them, with their keys as-is.
+     */
+    default void write(Map<String, String> messages, OutputStream output) throws IOException {
+        write(messages, List.of(), output);
+    }
+
+    /**
+     * Writes messages as {@link #read} reads them, laid out like the files in {@code layouts}: each
+     * key is written the way the first of them that has it does, e.g. nested, and what the format
+     * keeps beyond messages, e.g. comments, is kept from the first of them.
+     *
+     * @param layouts contents of files in this format, most relevant first
+     */
+    void write(Map<String, String> messages, List<byte[]> layouts, OutputStream output) throws IOException;
+}
@@ -22,11 +22,15 @@ package org.enginehub.crowdin;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
 import org.jetbrains.annotations.Nullable;
 
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class TranslationValidator {
 
@@ -34,6 +38,23 @@ public class TranslationValidator {
         return new MessageFormat(pattern.replace("'", "''"));
     }
 
+    /**
+     * @return the errors of entries that aren't valid patterns, which the constructor rejects
+     */
+    public static List<String> checkPatterns(String context, Map<String, String> source) {
+        var failures = new ArrayList<String>();
+        for (var entry : source.entrySet()) {
+            try {
+                newMessageFormat(entry.getValue());
+            } catch (IllegalArgumentException e) {
+                failures.add("Entry '%s' in %s is invalid: %s".formatted(
+                    entry.getKey(), context, e.getMessage()
+                ));
+            }
+        }
+        return failures;
+    }
+
     private final Map<String, MessageFormat> source;
 
     public TranslationValidator(Map<String, String> source) {
@@ -42,6 +63,24 @@ public class TranslationValidator {
         );
     }
 
+    public int sourceKeys() {
+        return source.size();
+    }
+
+    /**
+     * Hash what {@link #validate} checks against: the keys and how many formats each has. Source
+     * edits that keep both don't change it.
+     */
+    public String signature() {
+        var hasher = Hashing.sha256().newHasher();
+        for (var entry : new TreeMap<>(source).entrySet()) {
+            hasher.putString(entry.getKey(), StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putInt(entry.getValue().getFormats().length);
+        }
+        return hasher.hash().toString();
+    }
+
     /**
      * @return the error or {@code null} if it's all good
      */
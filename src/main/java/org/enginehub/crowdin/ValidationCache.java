@@ -0,0 +1,119 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which locale files passed validation against which source, by hash, along with their
+ * key counts, so that a run only parses and validates what changed since the previous one.
+ * Failures aren't remembered, so they are reported on every run. Without a directory nothing is
+ * remembered.
+ */
+public final class ValidationCache {
+
+    private static final String FILE = "validation-cache.json";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static String hash(byte[] content) {
+        return Hashing.sha256().hashBytes(content).toString();
+    }
+
+    public static ValidationCache load(@Nullable Path directory) {
+        Map<String, Integer> passed = Map.of();
+        if (directory != null) {
+            var file = directory.resolve(FILE);
+            if (Files.exists(file)) {
+                try {
+                    passed = MAPPER.readValue(file.toFile(), new TypeReference<Map<String, Integer>>() {
+                    });
+                } catch (IOException e) {
+                    // Only costs a full validation
+                    System.err.println("Ignoring unreadable validation cache: " + e);
+                }
+            }
+        }
+        return new ValidationCache(directory, passed);
+    }
+
+    private final @Nullable Path directory;
+    private final Map<String, Integer> previous;
+    // What this run saw pass, all that is saved, so entries for replaced files fall out
+    private final Map<String, Integer> current = new ConcurrentHashMap<>();
+
+    private ValidationCache(@Nullable Path directory, Map<String, Integer> previous) {
+        this.directory = directory;
+        this.previous = previous;
+    }
+
+    private static String key(String sourceSignature, String localeHash) {
+        return sourceSignature + ":" + localeHash;
+    }
+
+    /**
+     * @return the key count of a locale with this hash, if it passed against a source with this
+     *     signature before
+     */
+    public OptionalInt passed(String sourceSignature, String localeHash) {
+        var key = key(sourceSignature, localeHash);
+        var keys = current.get(key);
+        if (keys == null) {
+            keys = previous.get(key);
+            if (keys == null) {
+                return OptionalInt.empty();
+            }
+            current.put(key, keys);
+        }
+        return OptionalInt.of(keys);
+    }
+
+    public void recordPass(String sourceSignature, String localeHash, int keys) {
+        current.put(key(sourceSignature, localeHash), keys);
+    }
+
+    public void save() {
+        if (directory == null) {
+            return;
+        }
+        try {
+            var temporary = directory.resolve(FILE + ".tmp");
+            MAPPER.writeValue(temporary.toFile(), new TreeMap<>(current));
+            Files.move(
+                temporary, directory.resolve(FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+            );
+        } catch (IOException e) {
+            System.err.println("Failed to save validation cache: " + e);
+        }
+    }
+}
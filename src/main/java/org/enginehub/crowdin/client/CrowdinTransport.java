@@ -0,0 +1,59 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin.client;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends the HTTP requests made by {@link SimpleCrowdin}. OkHttp's {@link Request} and
+ * {@link Response} are used as the model regardless of implementation, since they're plain values
+ * and already part of the client's API.
+ *
+ * <p>
+ * Retries and default headers are applied by the client, so implementations only need to
+ * perform the exchange.
+ * </p>
+ */
+public interface CrowdinTransport extends AutoCloseable {
+
+    Response execute(Request request) throws IOException;
+
+    /**
+     * Send {@code request} without blocking. I/O failures complete the future with an
+     * {@link java.io.UncheckedIOException}, and cancelling the future cancels the exchange.
+     */
+    CompletableFuture<Response> executeAsync(Request request);
+
+    /**
+     * Cancel every exchange currently in flight on this transport.
+     */
+    void cancelAll();
+
+    /**
+     * Release the threads and connections held by this transport.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin.client;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link CrowdinTransport} that answers every request from a {@link Handler} without touching the
+ * network, for tests and benchmarks.
+ */
+public final class InMemoryTransport implements CrowdinTransport {
+
+    @FunctionalInterface
+    public interface Handler {
+        Response handle(Request request) throws IOException;
+    }
+
+    /**
+     * Build a response to {@code request}, for use in a {@link Handler}.
+     */
+    public static Response respond(Request request, int code, @Nullable MediaType contentType, byte[] body) {
+        return new Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("")
+            .body(ResponseBody.create(body, contentType))
+            .build();
+    }
+
+    private final Handler handler;
+
+    public InMemoryTransport(Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        return handler.handle(request);
+    }
+
+    @Override
+    public CompletableFuture<Response> executeAsync(Request request) {
+        try {
+            return CompletableFuture.completedFuture(handler.handle(request));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+    }
+
+    @Override
+    public void cancelAll() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin.client;
+
+import com.google.common.net.HttpHeaders;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link CrowdinTransport} backed by the JDK's {@link HttpClient}. It negotiates HTTP/2 where the
+ * server allows it, so concurrent requests are multiplexed over one connection, and it runs
+ * response handling on virtual threads.
+ */
+public final class JdkHttpTransport implements CrowdinTransport {
+
+    // The JDK client manages these itself and refuses to have them set
+    private static final Set<String> RESTRICTED_HEADERS = Set.of(
+        "connection", "content-length", "expect", "host", "upgrade"
+    );
+
+    public static JdkHttpTransport create() {
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        return new JdkHttpTransport(
+            HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build(),
+            executor
+        );
+    }
+
+    private final HttpClient httpClient;
+    private final ExecutorService executor;
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+
+    private JdkHttpTransport(HttpClient httpClient, ExecutorService executor) {
+        this.httpClient = httpClient;
+        this.executor = executor;
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        try {
+            return toResponse(request, httpClient.send(toHttpRequest(request), HttpResponse.BodyHandlers.ofInputStream()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            var interrupted = new InterruptedIOException("Interrupted while sending " + request.url());
+            interrupted.initCause(e);
+            throw interrupted;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> executeAsync(Request request) {
+        HttpRequest httpRequest;
+        try {
+            httpRequest = toHttpRequest(request);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+        var exchange = httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+        inFlight.add(exchange);
+        var future = new CompletableFuture<Response>();
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        exchange.whenComplete((response, error) -> {
+            inFlight.remove(exchange);
+            if (error != null) {
+                var cause = error instanceof CompletionException ? error.getCause() : error;
+                future.completeExceptionally(
+                    cause instanceof IOException ioException ? new UncheckedIOException(ioException) : cause
+                );
+                return;
+            }
+            var converted = toResponse(request, response);
+            if (!future.complete(converted)) {
+                converted.close();
+            }
+        });
+        return future;
+    }
+
+    private static HttpRequest toHttpRequest(Request request) throws IOException {
+        var builder = HttpRequest.newBuilder(request.url().uri());
+        var headers = request.headers();
+        for (int i = 0; i < headers.size(); i++) {
+            if (!RESTRICTED_HEADERS.contains(headers.name(i).toLowerCase(Locale.ROOT))) {
+                builder.header(headers.name(i), headers.value(i));
+            }
+        }
+        var body = request.body();
+        if (body == null) {
+            builder.method(request.method(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            var contentType = body.contentType();
+            if (contentType != null && request.header(HttpHeaders.CONTENT_TYPE) == null) {
+                builder.header(HttpHeaders.CONTENT_TYPE, contentType.toString());
+            }
+            // Our request bodies are small JSON documents and source files, so buffering is fine
+            var buffer = new Buffer();
+            body.writeTo(buffer);
+            builder.method(request.method(), HttpRequest.BodyPublishers.ofByteArray(buffer.readByteArray()));
+        }
+        return builder.build();
+    }
+
+    private static Response toResponse(Request request, HttpResponse<InputStream> response) {
+        var headers = new Headers.Builder();
+        response.headers().map().forEach((name, values) -> {
+            // HTTP/2 pseudo-headers aren't real headers
+            if (!name.startsWith(":")) {
+                values.forEach(value -> headers.add(name, value));
+            }
+        });
+        var contentType = response.headers().firstValue(HttpHeaders.CONTENT_TYPE)
+            .map(MediaType::parse)
+            .orElse(null);
+        var contentLength = response.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH).orElse(-1);
+        return new Response.Builder()
+            .request(request)
+            .protocol(response.version() == HttpClient.Version.HTTP_2 ? Protocol.HTTP_2 : Protocol.HTTP_1_1)
+            .code(response.statusCode())
+            .message("")
+            .headers(headers.build())
+            .body(ResponseBody.create(Okio.buffer(Okio.source(response.body())), contentType, contentLength))
+            .build();
+    }
+
+    @Override
+    public void cancelAll() {
+        for (var exchange : inFlight) {
+            exchange.cancel(true);
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+        httpClient.shutdownNow();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin.client;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link CrowdinTransport} backed by an {@link OkHttpClient}. Pass the same client to several
+ * transports to share its connection pool and dispatcher.
+ */
+public final class OkHttpTransport implements CrowdinTransport {
+
+    public static OkHttpTransport create() {
+        return new OkHttpTransport(new OkHttpClient.Builder()
+            .followRedirects(true)
+            .followSslRedirects(false)
+            .build());
+    }
+
+    private final OkHttpClient httpClient;
+
+    public OkHttpTransport(OkHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        return httpClient.newCall(request).execute();
+    }
+
+    @Override
+    public CompletableFuture<Response> executeAsync(Request request) {
+        var call = httpClient.newCall(request);
+        var future = new CompletableFuture<Response>();
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(new UncheckedIOException(e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                if (!future.complete(response)) {
+                    response.close();
+                }
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public void cancelAll() {
+        httpClient.dispatcher().cancelAll();
+    }
+
+    /**
+     * Shut down the dispatcher threads. Its threads aren't daemons, so the JVM will linger until
+     * this is called. Calls already running complete as normal.
+     */
+    @Override
+    public void close() {
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin.client;
+
+import com.google.common.net.HttpHeaders;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Downloads a file over several HTTP Range requests, writing each part directly into its place
+ * in the destination file. A part that fails mid-transfer is resumed from the last byte written
+ * rather than restarted. Servers that ignore {@code Range} get a plain single-stream download.
+ *
+ * <p>
+ * At most {@value PARALLELISM} chunks are in flight at once.
+ * </p>
+ */
+final class RangedDownload {
+
+    private static final long CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final int PARALLELISM = 4;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+    // S3 uses the MD5 of the object as the ETag, unless it was a multipart upload
+    private static final Pattern MD5_ETAG = Pattern.compile("\"?(\\p{XDigit}{32})\"?");
+
+    private static long computeBackoff(int attempt) {
+        return ThreadLocalRandom.current().nextInt(0, 250 * attempt) + 250;
+    }
+
+    private final SimpleCrowdin client;
+    private final HttpUrl url;
+    private final Path destination;
+    private final MediaType expectedType;
+
+    RangedDownload(SimpleCrowdin client, HttpUrl url, Path destination, MediaType expectedType) {
+        this.client = client;
+        this.url = url;
+        this.destination = destination;
+        this.expectedType = expectedType;
+    }
+
+    private final class Chunk {
+        private final long start;
+        private final long end;
+        private long written;
+
+        private Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private long remaining() {
+            return end - start + 1 - written;
+        }
+
+        private String describe() {
+            return "bytes " + (start + written) + "-" + end + " of " + url;
+        }
+    }
+
+    CompletableFuture<Void> start() {
+        // The first chunk doubles as the probe for Range support and the total size
+        return withRetries(
+            () -> client.enqueue(rangeRequest(0, CHUNK_SIZE - 1, null), this::handleFirstResponse),
+            "first chunk of " + url
+        ).thenCompose(Function.identity());
+    }
+
+    private Request rangeRequest(long start, long end, @Nullable String etag) {
+        var builder = new Request.Builder()
+            .get().url(url)
+            .header(HttpHeaders.RANGE, "bytes=" + start + "-" + end);
+        if (etag != null) {
+            // If the file changed underneath us, we get a 200 instead of mixing two versions
+            builder.header(HttpHeaders.IF_RANGE, etag);
+        }
+        return builder.build();
+    }
+
+    private CompletableFuture<Void> handleFirstResponse(Response response) throws IOException {
+        try (response) {
+            SimpleCrowdin.handleResponseFail(response);
+            var body = checkBody(response);
+            if (response.code() != 206) {
+                System.err.println("Server ignored the Range header, downloading as a single stream");
+                Files.copy(body.byteStream(), destination, StandardCopyOption.REPLACE_EXISTING);
+                var expectedSize = body.contentLength();
+                if (expectedSize != -1) {
+                    checkSize(expectedSize);
+                }
+                return CompletableFuture.completedFuture(null);
+            }
+            var total = parseContentRange(response, 0);
+            var etag = response.header(HttpHeaders.ETAG);
+            var channel = preallocate(total);
+            var chunks = new ArrayList<Chunk>();
+            for (long start = 0; start < total; start += CHUNK_SIZE) {
+                chunks.add(new Chunk(start, Math.min(start + CHUNK_SIZE, total) - 1));
+            }
+            try {
+                // Whatever part of the first chunk doesn't arrive here is resumed like any other
+                transfer(body, chunks.get(0), channel);
+            } catch (IOException e) {
+                System.err.println("Resuming " + chunks.get(0).describe() + " after: " + e);
+            }
+            var pending = new ConcurrentLinkedQueue<>(chunks);
+            var workers = new CompletableFuture<?>[PARALLELISM];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = fetchPending(pending, etag, channel);
+            }
+            return CompletableFuture.allOf(workers)
+                .thenRun(() -> verify(chunks, total, etag))
+                .whenComplete((result, error) -> {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        }
+    }
+
+    private ResponseBody checkBody(Response response) {
+        var body = response.body();
+        checkState(body != null, "No response body");
+        checkState(
+            expectedType.equals(body.contentType()),
+            "Invalid Content-type: %s", body.contentType()
+        );
+        return body;
+    }
+
+    private long parseContentRange(Response response, long expectedStart) {
+        var contentRange = response.header(HttpHeaders.CONTENT_RANGE);
+        checkState(contentRange != null, "No Content-Range in partial response from %s", url);
+        var matcher = CONTENT_RANGE.matcher(contentRange);
+        checkState(matcher.matches(), "Unsupported Content-Range: %s", contentRange);
+        checkState(
+            Long.parseLong(matcher.group(1)) == expectedStart,
+            "Asked for range starting at %s, got %s", expectedStart, contentRange
+        );
+        return Long.parseLong(matcher.group(3));
+    }
+
+    private FileChannel preallocate(long total) throws IOException {
+        try (var file = new RandomAccessFile(destination.toFile(), "rw")) {
+            file.setLength(total);
+        }
+        return FileChannel.open(destination, StandardOpenOption.WRITE);
+    }
+
+    private CompletableFuture<Void> fetchPending(Queue<Chunk> pending, @Nullable String etag,
+                                                 FileChannel channel) {
+        var chunk = pending.poll();
+        if (chunk == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return withRetries(() -> fetch(chunk, etag, channel), chunk.describe())
+            .thenCompose(v -> fetchPending(pending, etag, channel));
+    }
+
+    private CompletableFuture<Void> fetch(Chunk chunk, @Nullable String etag, FileChannel channel) {
+        if (chunk.remaining() == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        var start = chunk.start + chunk.written;
+        return client.enqueue(rangeRequest(start, chunk.end, etag), response -> {
+            try (response) {
+                SimpleCrowdin.handleResponseFail(response);
+                checkState(
+                    response.code() == 206,
+                    "Expected a partial response for %s, got %s (did the file change?)",
+                    chunk.describe(), response.code()
+                );
+                parseContentRange(response, start);
+                transfer(checkBody(response), chunk, channel);
+            }
+            return null;
+        });
+    }
+
+    private void transfer(ResponseBody body, Chunk chunk, FileChannel channel) throws IOException {
+        try (var input = body.byteStream()) {
+            var buffer = new byte[64 * 1024];
+            while (chunk.remaining() > 0) {
+                var read = input.read(buffer, 0, (int) Math.min(buffer.length, chunk.remaining()));
+                if (read == -1) {
+                    throw new IOException("Connection closed with " + chunk.remaining() + " bytes left");
+                }
+                var byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                var position = chunk.start + chunk.written;
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+                chunk.written += read;
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> withRetries(Supplier<CompletableFuture<T>> action, String description) {
+        return withRetries(action, description, 1);
+    }
+
+    private <T> CompletableFuture<T> withRetries(Supplier<CompletableFuture<T>> action, String description,
+                                                 int attempt) {
+        return action.get().exceptionallyCompose(error -> {
+            var cause = error instanceof CompletionException ? error.getCause() : error;
+            // Only I/O failures are worth retrying, anything else is a bad response. Once the client
+            // was cancelled, the I/O failures are the cancellation itself
+            if (!(cause instanceof UncheckedIOException) || attempt >= MAX_ATTEMPTS || client.isCancelled()) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            System.err.println("Retrying " + description + " after: " + cause.getCause());
+            return CompletableFuture.runAsync(
+                () -> {
+                },
+                CompletableFuture.delayedExecutor(computeBackoff(attempt), TimeUnit.MILLISECONDS)
+            ).thenCompose(v -> withRetries(action, description, attempt + 1));
+        });
+    }
+
+    private void verify(List<Chunk> chunks, long total, @Nullable String etag) {
+        for (var chunk : chunks) {
+            checkState(chunk.remaining() == 0, "Incomplete download, missing %s", chunk.describe());
+        }
+        try {
+            checkSize(total);
+            if (etag != null) {
+                var md5 = MD5_ETAG.matcher(etag);
+                if (md5.matches()) {
+                    var actual = md5(destination);
+                    checkState(
+                        actual.equalsIgnoreCase(md5.group(1)),
+                        "Downloaded file has MD5 %s, but the server reported %s", actual, md5.group(1)
+                    );
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkSize(long expectedSize) throws IOException {
+        var actualSize = Files.size(destination);
+        checkState(
+            actualSize == expectedSize,
+            "Downloaded file is %s bytes, expected %s", actualSize, expectedSize
+        );
+    }
+
+    private static String md5(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (var input = Files.newInputStream(file)) {
+            var buffer = new byte[64 * 1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -23,102 +23,150 @@ package org.enginehub.crowdin.client;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Streams;
 import com.google.common.net.HttpHeaders;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import org.enginehub.crowdin.client.request.CreateProjectBuild;
 import org.enginehub.crowdin.client.request.ReplaceFileFromStorage;
+import org.enginehub.crowdin.client.response.Branch;
 import org.enginehub.crowdin.client.response.FileDownload;
 import org.enginehub.crowdin.client.response.FileInfo;
+import org.enginehub.crowdin.client.response.LanguageProgress;
+import org.enginehub.crowdin.client.response.LanguageTranslation;
 import org.enginehub.crowdin.client.response.Page;
 import org.enginehub.crowdin.client.response.Project;
 import org.enginehub.crowdin.client.response.ProjectBuild;
+import org.enginehub.crowdin.client.response.ResponseModule;
+import org.enginehub.crowdin.client.response.SourceString;
 import org.enginehub.crowdin.client.response.Storage;
 import org.enginehub.crowdin.jackson.InsideDataModule;
+import org.enginehub.crowdin.jfr.CrowdinRequestEvent;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static org.enginehub.crowdin.client.HttpMethod.DELETE;
 import static org.enginehub.crowdin.client.HttpMethod.GET;
 import static org.enginehub.crowdin.client.HttpMethod.POST;
 import static org.enginehub.crowdin.client.HttpMethod.PUT;
 
 /**
  * Actual Crowdin SDK is really bad. This is a tiny replacement.
+ *
+ * <p>
+ * Every blocking method has an {@code Async} counterpart that is handed to the
+ * {@link CrowdinTransport} instead of occupying the calling thread. Cancelling a returned future
+ * cancels the underlying call.
+ * </p>
  */
-public class SimpleCrowdin {
+public class SimpleCrowdin implements AutoCloseable {
+
+    public static final String DEFAULT_BASE_URL = "https://api.crowdin.com/api/v2";
 
-    private static final String BASE_URL = "https://api.crowdin.com/api/v2";
+    private static final int MAX_ATTEMPTS = 10;
+    // The most Crowdin allows per page
+    private static final int PAGE_LIMIT = 500;
 
     private static long computeBackoff(int attempt) {
-        return ThreadLocalRandom.current().nextInt(0, 50 * attempt) + 50;
+        // attempt counts from 0, and the bound must be positive
+        return ThreadLocalRandom.current().nextInt(0, 50 * (attempt + 1)) + 50;
     }
 
     private final ObjectMapper mapper = new ObjectMapper()
-        .registerModules(new InsideDataModule(), new JavaTimeModule())
+        .registerModules(new InsideDataModule(), new ResponseModule(), new JavaTimeModule())
         .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    // Resolving a type and looking up its deserializer is not free, so do it once per response type
+    private final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<Type, ObjectReader> pageReaders = new ConcurrentHashMap<>();
+    private final String baseUrl;
     private final long projectId;
-    private final OkHttpClient httpClient;
+    private final CrowdinTransport transport;
+    private final boolean ownsTransport;
     private final String authorizationHeaderValue;
+    private volatile boolean cancelled;
 
     public SimpleCrowdin(String token, long projectId) {
+        this(DEFAULT_BASE_URL, token, projectId);
+    }
+
+    /**
+     * @param baseUrl the API root, e.g. {@value DEFAULT_BASE_URL}, or a local fake of it
+     */
+    public SimpleCrowdin(String baseUrl, String token, long projectId) {
+        this(baseUrl, token, projectId, OkHttpTransport.create(), true);
+    }
+
+    /**
+     * Create a client on a caller-owned transport, which is left open by {@link #close()} so that
+     * it can be shared.
+     */
+    public SimpleCrowdin(String baseUrl, String token, long projectId, CrowdinTransport transport) {
+        this(baseUrl, token, projectId, transport, false);
+    }
+
+    private SimpleCrowdin(String baseUrl, String token, long projectId, CrowdinTransport transport,
+                          boolean ownsTransport) {
+        this.baseUrl = baseUrl.replaceFirst("/+$", "");
         this.projectId = projectId;
         this.authorizationHeaderValue = "Bearer " + token;
-        this.httpClient = new OkHttpClient.Builder()
-            .followRedirects(true)
-            .followSslRedirects(false)
-            // Default Headers handler
-            .addNetworkInterceptor(chain -> {
-                var request = chain.request();
-                var builder = request.newBuilder();
-                // content type is omitted here, the body should carry it already if needed
-                if (request.header(HttpHeaders.ACCEPT) == null) {
-                    builder.header(HttpHeaders.ACCEPT, "application/json");
-                }
-                return chain.proceed(builder.build());
-            })
-            // 429 Too Many Requests handler
-            .addInterceptor(chain -> {
-                Response response = null;
-                for (var counter = 0; counter < 10; counter++) {
-                    response = chain.proceed(chain.request());
-                    if (response.code() != 429) {
-                        return response;
-                    }
-                    try {
-                        Thread.sleep(computeBackoff(counter));
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException(e);
-                    }
-                }
-                // after a few attempts, just propagate the error
-                // it's unlikely we'll actually be rate-limited anyways
-                return response;
-            })
-            .build();
+        this.transport = transport;
+        this.ownsTransport = ownsTransport;
+    }
+
+    /**
+     * Cancel every request in flight, e.g. when giving up on a run. Requests made afterwards are
+     * still sent, but nothing is retried any more.
+     */
+    public void cancelAll() {
+        cancelled = true;
+        transport.cancelAll();
+    }
+
+    /**
+     * Whether {@link #cancelAll()} was called, so failures should no longer be retried.
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Release the transport, if this client created it. Calls already running complete as normal.
+     */
+    @Override
+    public void close() {
+        if (ownsTransport) {
+            transport.close();
+        }
     }
 
     private HttpUrl baseRelativeUrl(String url) {
-        return HttpUrl.get(BASE_URL + url);
+        return HttpUrl.get(baseUrl + url);
     }
 
     private HttpUrl projectRelativeUrl(String url) {
@@ -135,7 +183,21 @@ public class SimpleCrowdin {
                 .post(content)
                 .url(baseRelativeUrl("/storages"))
                 .header("Crowdin-API-FileName", fileName),
-            mapper.constructType(Storage.class)
+            readerFor(Storage.class)
+        );
+    }
+
+    public CompletableFuture<Storage> createStorageAsync(String fileName, RequestBody content) {
+        checkArgument(
+            MediaType.get("application/octet-stream").equals(content.contentType()),
+            "The content type must be application/octet-stream"
+        );
+        return executeAsync(
+            req -> req
+                .post(content)
+                .url(baseRelativeUrl("/storages"))
+                .header("Crowdin-API-FileName", fileName),
+            readerFor(Storage.class)
         );
     }
 
@@ -144,21 +206,81 @@ public class SimpleCrowdin {
         });
     }
 
+    public CompletableFuture<Project> getProjectAsync() {
+        return executeStandardAsync(GET, projectRelativeUrl(""), null, new TypeReference<>() {
+        });
+    }
+
+    public CompletableFuture<List<Branch>> listBranchesAsync() {
+        return collectPaginatedAsync(projectRelativeUrl("/branches"), new TypeReference<>() {
+        });
+    }
+
+    /**
+     * List all branches, handing each page to {@code pageConsumer}. The next page is only requested
+     * once the stage returned for the previous page completes.
+     */
+    public CompletableFuture<Void> listBranchesAsync(
+        Function<? super List<Branch>, ? extends CompletionStage<?>> pageConsumer
+    ) {
+        return executePaginatedAsync(projectRelativeUrl("/branches"), new TypeReference<>() {
+        }, pageConsumer);
+    }
+
     public Stream<FileInfo> listFiles() {
         return executePaginated(projectRelativeUrl("/files"), new TypeReference<>() {
         });
     }
 
+    /**
+     * List all files, collecting every page.
+     */
+    public CompletableFuture<List<FileInfo>> listFilesAsync() {
+        return collectPaginatedAsync(projectRelativeUrl("/files"), new TypeReference<>() {
+        });
+    }
+
+    /**
+     * List the files of one branch, collecting every page. Their paths start with the branch name.
+     */
+    public CompletableFuture<List<FileInfo>> listFilesAsync(long branchId) {
+        var url = projectRelativeUrl("/files").newBuilder()
+            .addQueryParameter("branchId", String.valueOf(branchId))
+            .build();
+        return collectPaginatedAsync(url, new TypeReference<>() {
+        });
+    }
+
+    /**
+     * List all files, handing each page to {@code pageConsumer}. The next page is only requested
+     * once the stage returned for the previous page completes.
+     */
+    public CompletableFuture<Void> listFilesAsync(
+        Function<? super List<FileInfo>, ? extends CompletionStage<?>> pageConsumer
+    ) {
+        return executePaginatedAsync(projectRelativeUrl("/files"), new TypeReference<>() {
+        }, pageConsumer);
+    }
+
     public Response downloadFile(long fileId) {
         return executeDownload(projectRelativeUrl("/files/" + fileId + "/download"));
     }
 
+    public CompletableFuture<Response> downloadFileAsync(long fileId) {
+        return executeDownloadAsync(projectRelativeUrl("/files/" + fileId + "/download"));
+    }
+
     public void updateFile(long fileId, ReplaceFileFromStorage request) {
         // inferred deserialization to Object, since there is a response, we just don't use it
         executeStandard(PUT, projectRelativeUrl("/files/" + fileId), request, new TypeReference<>() {
         });
     }
 
+    public CompletableFuture<Void> updateFileAsync(long fileId, ReplaceFileFromStorage request) {
+        return executeStandardAsync(PUT, projectRelativeUrl("/files/" + fileId), request, new TypeReference<>() {
+        }).thenApply(v -> null);
+    }
+
     public ProjectBuild buildProjectTranslation(CreateProjectBuild request) {
         return executeStandard(
             POST, projectRelativeUrl("/translations/builds"),
@@ -167,6 +289,14 @@ public class SimpleCrowdin {
         );
     }
 
+    public CompletableFuture<ProjectBuild> buildProjectTranslationAsync(CreateProjectBuild request) {
+        return executeStandardAsync(
+            POST, projectRelativeUrl("/translations/builds"),
+            request, new TypeReference<>() {
+            }
+        );
+    }
+
     public ProjectBuild checkProjectBuildStatus(long buildId) {
         return executeStandard(
             GET, projectRelativeUrl("/translations/builds/" + buildId),
@@ -175,16 +305,128 @@ public class SimpleCrowdin {
         );
     }
 
+    public CompletableFuture<ProjectBuild> checkProjectBuildStatusAsync(long buildId) {
+        return executeStandardAsync(
+            GET, projectRelativeUrl("/translations/builds/" + buildId),
+            null, new TypeReference<>() {
+            }
+        );
+    }
+
+    public void cancelProjectBuild(long buildId) {
+        executeStandard(DELETE, projectRelativeUrl("/translations/builds/" + buildId), null, (ObjectReader) null);
+    }
+
+    public CompletableFuture<List<LanguageProgress>> listLanguageProgressAsync() {
+        return collectPaginatedAsync(projectRelativeUrl("/languages/progress"), new TypeReference<>() {
+        });
+    }
+
+    /**
+     * List the source strings of a file, collecting every page.
+     */
+    public CompletableFuture<List<SourceString>> listStringsAsync(long fileId) {
+        return collectPaginatedAsync(stringsUrl(fileId), new TypeReference<>() {
+        });
+    }
+
+    /**
+     * List the source strings of a file, handing each page to {@code pageConsumer}. The next page is
+     * only requested once the stage returned for the previous page completes.
+     */
+    public CompletableFuture<Void> listStringsAsync(
+        long fileId, Function<? super List<SourceString>, ? extends CompletionStage<?>> pageConsumer
+    ) {
+        return executePaginatedAsync(stringsUrl(fileId), new TypeReference<>() {
+        }, pageConsumer);
+    }
+
+    private HttpUrl stringsUrl(long fileId) {
+        return projectRelativeUrl("/strings").newBuilder()
+            .addQueryParameter("fileId", String.valueOf(fileId))
+            .build();
+    }
+
+    /**
+     * List the translations of a file in one language that an export would use, collecting every
+     * page. Untranslated strings are left out.
+     */
+    public CompletableFuture<List<LanguageTranslation>> listLanguageTranslationsAsync(String languageId,
+                                                                                      long fileId) {
+        return collectPaginatedAsync(languageTranslationsUrl(languageId, fileId), new TypeReference<>() {
+        });
+    }
+
+    /**
+     * List the translations of a file in one language that an export would use, handing each page
+     * to {@code pageConsumer}. The next page is only requested once the stage returned for the
+     * previous page completes.
+     */
+    public CompletableFuture<Void> listLanguageTranslationsAsync(
+        String languageId, long fileId,
+        Function<? super List<LanguageTranslation>, ? extends CompletionStage<?>> pageConsumer
+    ) {
+        return executePaginatedAsync(languageTranslationsUrl(languageId, fileId), new TypeReference<>() {
+        }, pageConsumer);
+    }
+
+    private HttpUrl languageTranslationsUrl(String languageId, long fileId) {
+        return projectRelativeUrl("/languages/" + languageId + "/translations").newBuilder()
+            .addQueryParameter("fileId", String.valueOf(fileId))
+            .build();
+    }
+
+    public Stream<ProjectBuild> listProjectBuilds() {
+        return executePaginated(projectRelativeUrl("/translations/builds"), new TypeReference<>() {
+        });
+    }
+
+    public CompletableFuture<List<ProjectBuild>> listProjectBuildsAsync() {
+        return collectPaginatedAsync(projectRelativeUrl("/translations/builds"), new TypeReference<>() {
+        });
+    }
+
     public Response downloadProjectTranslations(long buildId) {
         return executeDownload(projectRelativeUrl("/translations/builds/" + buildId + "/download"));
     }
 
+    /**
+     * Download the bundle for {@code buildId} to {@code destination}, split over several ranged
+     * requests if the server supports them. See {@link RangedDownload}.
+     */
+    public CompletableFuture<Void> downloadProjectTranslationsAsync(long buildId, Path destination) {
+        return this.<Object, FileDownload>executeStandardAsync(
+            GET, projectRelativeUrl("/translations/builds/" + buildId + "/download"),
+            null, new TypeReference<>() {
+            }
+        ).thenCompose(downloadLink -> new RangedDownload(
+            this, HttpUrl.get(downloadLink.url()), destination, MediaType.get("application/zip")
+        ).start());
+    }
+
+    private ObjectReader readerFor(Type responseType) {
+        return readers.computeIfAbsent(responseType, type -> mapper.readerFor(mapper.constructType(type)));
+    }
+
+    private ObjectReader pageReaderFor(TypeReference<?> responseType) {
+        return pageReaders.computeIfAbsent(responseType.getType(), type -> {
+            var typeFactory = mapper.getTypeFactory();
+            return mapper.readerFor(typeFactory.constructParametricType(
+                Page.class,
+                typeFactory.constructType(type)
+            ));
+        });
+    }
+
+    private static HttpUrl pageUrl(HttpUrl url, int offset) {
+        return url.newBuilder()
+            .addQueryParameter("offset", String.valueOf(offset))
+            .addQueryParameter("limit", String.valueOf(PAGE_LIMIT))
+            .build();
+    }
+
     private <O> Stream<O> executePaginated(HttpUrl url, TypeReference<O> responseType) {
-        var typeFactory = mapper.getTypeFactory();
-        var pageResponseType = typeFactory.constructParametricType(
-            Page.class,
-            typeFactory.constructType(responseType)
-        );
+        var pageResponseType = pageReaderFor(responseType);
         return Streams.stream(new AbstractIterator<Stream<O>>() {
             private int offset = 0;
 
@@ -192,32 +434,61 @@ public class SimpleCrowdin {
             protected Stream<O> computeNext() {
                 Page<O> page = executeStandard(
                     GET,
-                    url.newBuilder()
-                        .addQueryParameter("offset", String.valueOf(offset))
-                        .build(),
+                    pageUrl(url, offset),
                     null,
                     pageResponseType
                 );
                 if (page.data().isEmpty()) {
                     return endOfData();
                 }
-                offset++;
+                // The offset counts items, not pages
+                offset += page.data().size();
                 return page.data().stream();
             }
         })
             .flatMap(Function.identity());
     }
 
+    private <O> CompletableFuture<Void> executePaginatedAsync(
+        HttpUrl url, TypeReference<O> responseType,
+        Function<? super List<O>, ? extends CompletionStage<?>> pageConsumer
+    ) {
+        return fetchPagesFrom(url, pageReaderFor(responseType), 0, pageConsumer);
+    }
+
+    private <O> CompletableFuture<List<O>> collectPaginatedAsync(HttpUrl url, TypeReference<O> responseType) {
+        var items = new ArrayList<O>();
+        return executePaginatedAsync(url, responseType, page -> {
+            items.addAll(page);
+            return CompletableFuture.completedFuture(null);
+        }).thenApply(v -> items);
+    }
+
+    private <O> CompletableFuture<Void> fetchPagesFrom(
+        HttpUrl url, ObjectReader pageResponseType, int offset,
+        Function<? super List<O>, ? extends CompletionStage<?>> pageConsumer
+    ) {
+        return this.<Object, Page<O>>executeStandardAsync(GET, pageUrl(url, offset), null, pageResponseType)
+            .thenCompose(page -> {
+                if (page.data().isEmpty()) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                return pageConsumer.apply(page.data())
+                    .thenCompose(v -> fetchPagesFrom(
+                        url, pageResponseType, offset + page.data().size(), pageConsumer
+                    ));
+            });
+    }
+
     private Response executeDownload(HttpUrl url) {
         FileDownload downloadLink = executeStandard(
             GET, url, null, new TypeReference<>() {
             }
         );
         try {
-            var response = httpClient.newCall(new Request.Builder()
+            var response = send(new Request.Builder()
                 .get().url(downloadLink.url())
-                .build())
-                .execute();
+                .build());
             try {
                 handleResponseFail(response);
                 Objects.requireNonNull(response.body(), "No response body");
@@ -231,15 +502,33 @@ public class SimpleCrowdin {
         }
     }
 
+    private CompletableFuture<Response> executeDownloadAsync(HttpUrl url) {
+        return this.<Object, FileDownload>executeStandardAsync(
+            GET, url, null, new TypeReference<>() {
+            }
+        ).thenCompose(downloadLink -> enqueue(new Request.Builder()
+            .get().url(downloadLink.url())
+            .build(), response -> {
+            try {
+                handleResponseFail(response);
+                Objects.requireNonNull(response.body(), "No response body");
+                return response;
+            } catch (Throwable t) {
+                response.close();
+                throw t;
+            }
+        }));
+    }
+
     @Contract("_, _, _, null -> null; _, _, _, !null -> !null")
     private <I, O> @Nullable O executeStandard(HttpMethod method, HttpUrl url, @Nullable I requestBody,
                                                @Nullable TypeReference<O> responseType) {
-        JavaType responseJavaType = null;
+        ObjectReader responseReader = null;
         if (responseType != null) {
-            responseJavaType = mapper.constructType(responseType.getType());
+            responseReader = readerFor(responseType.getType());
         }
         return executeStandard(
-            method, url, requestBody, responseJavaType
+            method, url, requestBody, responseReader
         );
     }
 
@@ -247,20 +536,34 @@ public class SimpleCrowdin {
     // If there is a mismatch, an error will be raised
     @Contract("_, _, _, null -> null; _, _, _, !null -> !null")
     private <I, O> @Nullable O executeStandard(HttpMethod method, HttpUrl url, @Nullable I requestBody,
-                                               @Nullable JavaType responseType) {
+                                               @Nullable ObjectReader responseType) {
+        var mappedRequestBody = mapRequestBody(requestBody);
+        return execute(
+            req -> req
+                .url(url)
+                .method(method.name(), mappedRequestBody),
+            responseType
+        );
+    }
+
+    private <I, O> CompletableFuture<O> executeStandardAsync(HttpMethod method, HttpUrl url,
+                                                             @Nullable I requestBody,
+                                                             TypeReference<O> responseType) {
+        return executeStandardAsync(
+            method, url, requestBody, readerFor(responseType.getType())
+        );
+    }
+
+    private <I, O> CompletableFuture<O> executeStandardAsync(HttpMethod method, HttpUrl url,
+                                                             @Nullable I requestBody,
+                                                             ObjectReader responseType) {
         RequestBody mappedRequestBody;
-        if (requestBody != null) {
-            try {
-                mappedRequestBody = RequestBody.create(
-                    mapper.writeValueAsBytes(requestBody), MediaType.get("application/json")
-                );
-            } catch (JsonProcessingException e) {
-                throw new UncheckedIOException(e);
-            }
-        } else {
-            mappedRequestBody = null;
+        try {
+            mappedRequestBody = mapRequestBody(requestBody);
+        } catch (UncheckedIOException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        return execute(
+        return executeAsync(
             req -> req
                 .url(url)
                 .method(method.name(), mappedRequestBody),
@@ -268,34 +571,197 @@ public class SimpleCrowdin {
         );
     }
 
-    @Contract("_, null -> null; _, !null -> !null")
-    private <O> @Nullable O execute(Consumer<Request.Builder> requestConfig,
-                                    @Nullable JavaType responseType) {
+    private <I> @Nullable RequestBody mapRequestBody(@Nullable I requestBody) {
+        if (requestBody == null) {
+            return null;
+        }
+        try {
+            return RequestBody.create(
+                mapper.writeValueAsBytes(requestBody), MediaType.get("application/json")
+            );
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Request buildRequest(Consumer<Request.Builder> requestConfig) {
         var requestBuilder = new Request.Builder()
             .header(HttpHeaders.AUTHORIZATION, authorizationHeaderValue);
         requestConfig.accept(requestBuilder);
-        try (var response = httpClient.newCall(requestBuilder.build()).execute()) {
-            var body = response.body();
-            handleResponseFail(response);
+        return requestBuilder.build();
+    }
+
+    @Contract("_, null -> null; _, !null -> !null")
+    private <O> @Nullable O execute(Consumer<Request.Builder> requestConfig,
+                                    @Nullable ObjectReader responseType) {
+        try (var response = send(buildRequest(requestConfig))) {
+            return readResponse(response, responseType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            if (body == null) {
-                checkState(responseType == null, "A response body was expected, but none was given");
-                return null;
+    private <O> CompletableFuture<O> executeAsync(Consumer<Request.Builder> requestConfig,
+                                                  ObjectReader responseType) {
+        return enqueue(buildRequest(requestConfig), response -> {
+            try (response) {
+                return readResponse(response, responseType);
             }
+        });
+    }
 
-            checkState(responseType != null, "A response body was not expected, but one was given");
+    /**
+     * Send {@code request}, completing the future with the result of {@code handler}. The handler
+     * owns the response.
+     */
+    <O> CompletableFuture<O> enqueue(Request request, ResponseHandler<O> handler) {
+        var sent = sendAsync(request);
+        var handled = sent.thenApply(response -> {
+            try {
+                return handler.handle(response);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        handled.whenComplete((result, error) -> {
+            if (handled.isCancelled()) {
+                sent.cancel(true);
+            }
+        });
+        return handled;
+    }
 
-            return Objects.requireNonNull(
-                mapper.readValue(body.charStream(), responseType),
-                // Forbid this for now, it's a weird edge-case
-                "Literal null was deserialized from the JSON"
-            );
+    private static Request withDefaultHeaders(Request request) {
+        // content type is omitted here, the body should carry it already if needed
+        if (request.header(HttpHeaders.ACCEPT) != null) {
+            return request;
+        }
+        return request.newBuilder()
+            .header(HttpHeaders.ACCEPT, "application/json")
+            .build();
+    }
+
+    private static CrowdinRequestEvent beginEvent() {
+        var event = new CrowdinRequestEvent();
+        event.begin();
+        return event;
+    }
+
+    private static void commitEvent(CrowdinRequestEvent event, Request request,
+                                    @Nullable Response response, int retries) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.method = request.method();
+        event.endpoint = request.url().encodedPath();
+        var requestBody = request.body();
+        try {
+            event.requestBytes = requestBody == null ? 0 : requestBody.contentLength();
         } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            event.requestBytes = -1;
+        }
+        event.status = response == null ? -1 : response.code();
+        var responseBody = response == null ? null : response.body();
+        event.responseBytes = responseBody == null ? -1 : responseBody.contentLength();
+        event.retries = retries;
+        event.commit();
+    }
+
+    private Response send(Request request) throws IOException {
+        request = withDefaultHeaders(request);
+        var event = beginEvent();
+        Response response = null;
+        var counter = 0;
+        try {
+            for (; counter < MAX_ATTEMPTS; counter++) {
+                if (response != null) {
+                    response.close();
+                }
+                response = transport.execute(request);
+                if (response.code() != 429 || cancelled) {
+                    return response;
+                }
+                try {
+                    Thread.sleep(computeBackoff(counter));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    response.close();
+                    throw new RuntimeException(e);
+                }
+            }
+            // after a few attempts, just propagate the error
+            // it's unlikely we'll actually be rate-limited anyways
+            return response;
+        } finally {
+            commitEvent(event, request, response, Math.min(counter, MAX_ATTEMPTS - 1));
+        }
+    }
+
+    private CompletableFuture<Response> sendAsync(Request request) {
+        var result = new CompletableFuture<Response>();
+        sendAsync(withDefaultHeaders(request), 0, result, beginEvent());
+        return result;
+    }
+
+    private void sendAsync(Request request, int attempt, CompletableFuture<Response> result,
+                           CrowdinRequestEvent event) {
+        var exchange = transport.executeAsync(request);
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        exchange.whenComplete((response, error) -> {
+            if (error != null) {
+                commitEvent(event, request, null, attempt);
+                result.completeExceptionally(error);
+                return;
+            }
+            if (response.code() == 429 && attempt + 1 < MAX_ATTEMPTS && !result.isDone() && !cancelled) {
+                // Same policy as the blocking path, without holding a thread while waiting
+                response.close();
+                CompletableFuture.delayedExecutor(computeBackoff(attempt), TimeUnit.MILLISECONDS)
+                    .execute(() -> sendAsync(request, attempt + 1, result, event));
+                return;
+            }
+            commitEvent(event, request, response, attempt);
+            if (!result.complete(response)) {
+                response.close();
+            }
+        });
+    }
+
+    @FunctionalInterface
+    interface ResponseHandler<O> {
+        O handle(Response response) throws IOException;
+    }
+
+    @Contract("_, null -> null; _, !null -> !null")
+    private <O> @Nullable O readResponse(Response response, @Nullable ObjectReader responseType) throws IOException {
+        var body = response.body();
+        handleResponseFail(response);
+
+        if (responseType == null) {
+            // Transports always give a body, so "no body" is a 204 or an empty one
+            checkState(
+                body == null || response.code() == 204 || body.bytes().length == 0,
+                "A response body was not expected, but one was given"
+            );
+            return null;
         }
+
+        checkState(body != null, "A response body was expected, but none was given");
+
+        return Objects.requireNonNull(
+            // Reading from bytes lets Jackson decode UTF-8 itself, which is much faster than a Reader
+            responseType.readValue(body.byteStream()),
+            // Forbid this for now, it's a weird edge-case
+            "Literal null was deserialized from the JSON"
+        );
     }
 
-    private void handleResponseFail(Response response) throws IOException {
+    static void handleResponseFail(Response response) throws IOException {
         if (!response.isSuccessful()) {
             String text = "";
             var body = response.body();
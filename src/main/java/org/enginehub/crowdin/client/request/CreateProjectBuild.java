@@ -20,7 +20,29 @@
 
 package org.enginehub.crowdin.client.request;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
 public record CreateProjectBuild(
-    boolean skipUntranslatedStrings
+    boolean skipUntranslatedStrings,
+    // null for all languages
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Nullable List<String> targetLanguageIds,
+    // null for the whole project
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Nullable Long branchId
 ) {
+    public CreateProjectBuild(boolean skipUntranslatedStrings) {
+        this(skipUntranslatedStrings, null);
+    }
+
+    public CreateProjectBuild(boolean skipUntranslatedStrings, @Nullable List<String> targetLanguageIds) {
+        this(skipUntranslatedStrings, targetLanguageIds, null);
+    }
+
+    public CreateProjectBuild withBranchId(long branchId) {
+        return new CreateProjectBuild(skipUntranslatedStrings, targetLanguageIds, branchId);
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin.client.response;
+
+import org.enginehub.crowdin.jackson.InsideData;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+
+/**
+ * The translation of a string that an export of its language would use.
+ *
+ * @param text the translated text, or {@code null} for plurals
+ */
+@InsideData
+public record LanguageTranslation(
+    long stringId,
+    @Nullable String text,
+    Instant createdAt
+) {
+}
@@ -23,9 +23,11 @@ package org.enginehub.crowdin.client.response;
 import org.enginehub.crowdin.jackson.InsideData;
 
 import java.time.Instant;
+import java.util.List;
 
 @InsideData
 public record Project(
-    Instant lastActivity
+    Instant lastActivity,
+    List<Language> targetLanguages
 ) {
 }
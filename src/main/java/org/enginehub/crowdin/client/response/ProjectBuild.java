@@ -22,13 +22,31 @@ package org.enginehub.crowdin.client.response;
 
 import com.fasterxml.jackson.annotation.JsonValue;
 import org.enginehub.crowdin.jackson.InsideData;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.List;
 
 @InsideData
 public record ProjectBuild(
     long id,
     Status status,
-    int progress
+    int progress,
+    Instant createdAt,
+    @Nullable Attributes attributes
 ) {
+    /**
+     * The options the build was created with.
+     */
+    public record Attributes(
+        boolean skipUntranslatedStrings,
+        // empty for all languages
+        @Nullable List<String> targetLanguageIds,
+        // null for the whole project
+        @Nullable Long branchId
+    ) {
+    }
+
     public enum Status {
         CREATED("created"),
         IN_PROGRESS("inProgress"),
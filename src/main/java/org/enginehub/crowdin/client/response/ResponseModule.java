@@ -0,0 +1,514 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin.client.response;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written deserializers for the response records. Each run is a fresh JVM, and introspecting
+ * the records for the reflective bean deserializers is a noticeable part of its startup.
+ * {@link org.enginehub.crowdin.jackson.InsideData @InsideData} still applies, the
+ * {@link org.enginehub.crowdin.jackson.InsideDataModule} wraps these like any other.
+ */
+public final class ResponseModule extends SimpleModule {
+
+    public ResponseModule() {
+        super("CrowdinResponses");
+        addDeserializer(Branch.class, new BranchDeserializer());
+        addDeserializer(FileDownload.class, new FileDownloadDeserializer());
+        addDeserializer(FileInfo.class, new FileInfoDeserializer());
+        addDeserializer(Language.class, new LanguageDeserializer());
+        addDeserializer(LanguageProgress.class, new LanguageProgressDeserializer());
+        addDeserializer(LanguageProgress.Counts.class, new CountsDeserializer());
+        addDeserializer(Pagination.class, new PaginationDeserializer());
+        addDeserializer(Project.class, new ProjectDeserializer());
+        addDeserializer(ProjectBuild.class, new ProjectBuildDeserializer());
+        addDeserializer(ProjectBuild.Attributes.class, new AttributesDeserializer());
+        addDeserializer(LanguageTranslation.class, new LanguageTranslationDeserializer());
+        addDeserializer(SourceString.class, new SourceStringDeserializer());
+        addDeserializer(Storage.class, new StorageDeserializer());
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        JsonDeserializer<Page> pageDeserializer = (JsonDeserializer) new PageDeserializer(null);
+        addDeserializer(Page.class, pageDeserializer);
+    }
+
+    /**
+     * Move to the first field of the object at the current token.
+     *
+     * @return the first field name, or {@code null} if the object is empty
+     */
+    private static @Nullable String firstField(JsonParser p, DeserializationContext ctxt,
+                                               Class<?> type) throws IOException {
+        if (p.currentToken() == JsonToken.START_OBJECT) {
+            return p.nextFieldName();
+        }
+        if (p.currentToken() == JsonToken.FIELD_NAME) {
+            return p.currentName();
+        }
+        if (p.currentToken() == JsonToken.END_OBJECT) {
+            return null;
+        }
+        throw ctxt.wrongTokenException(p, type, JsonToken.START_OBJECT, null);
+    }
+
+    private static <T> T required(DeserializationContext ctxt, @Nullable T value, Class<?> type,
+                                  String field) throws IOException {
+        if (value == null) {
+            return ctxt.reportInputMismatch(type, "Missing \"%s\"", field);
+        }
+        return value;
+    }
+
+    private static @Nullable List<String> readStrings(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            throw ctxt.wrongTokenException(p, List.class, JsonToken.START_ARRAY, null);
+        }
+        var values = new ArrayList<String>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            values.add(p.getValueAsString());
+        }
+        return values;
+    }
+
+    private static final class BranchDeserializer extends StdDeserializer<Branch> {
+        BranchDeserializer() {
+            super(Branch.class);
+        }
+
+        @Override
+        public Branch deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            long id = 0;
+            String name = null;
+            for (var field = firstField(p, ctxt, Branch.class); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "id" -> id = p.getValueAsLong();
+                    case "name" -> name = p.getValueAsString();
+                    default -> p.skipChildren();
+                }
+            }
+            return new Branch(id, required(ctxt, name, Branch.class, "name"));
+        }
+    }
+
+    private static final class FileDownloadDeserializer extends StdDeserializer<FileDownload> {
+        FileDownloadDeserializer() {
+            super(FileDownload.class);
+        }
+
+        @Override
+        public FileDownload deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            String url = null;
+            for (var name = firstField(p, ctxt, FileDownload.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                if (name.equals("url")) {
+                    url = p.getValueAsString();
+                } else {
+                    p.skipChildren();
+                }
+            }
+            return new FileDownload(required(ctxt, url, FileDownload.class, "url"));
+        }
+    }
+
+    private static final class FileInfoDeserializer extends StdDeserializer<FileInfo> {
+        FileInfoDeserializer() {
+            super(FileInfo.class);
+        }
+
+        @Override
+        public FileInfo deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            long id = 0;
+            String path = null;
+            for (var name = firstField(p, ctxt, FileInfo.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "id" -> id = p.getValueAsLong();
+                    case "path" -> path = p.getValueAsString();
+                    default -> p.skipChildren();
+                }
+            }
+            return new FileInfo(id, required(ctxt, path, FileInfo.class, "path"));
+        }
+    }
+
+    private static final class LanguageDeserializer extends StdDeserializer<Language> {
+        LanguageDeserializer() {
+            super(Language.class);
+        }
+
+        @Override
+        public Language deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            String id = null;
+            String locale = null;
+            String twoLettersCode = null;
+            String threeLettersCode = null;
+            String androidCode = null;
+            String osxCode = null;
+            String osxLocale = null;
+            for (var name = firstField(p, ctxt, Language.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "id" -> id = p.getValueAsString();
+                    case "locale" -> locale = p.getValueAsString();
+                    case "twoLettersCode" -> twoLettersCode = p.getValueAsString();
+                    case "threeLettersCode" -> threeLettersCode = p.getValueAsString();
+                    case "androidCode" -> androidCode = p.getValueAsString();
+                    case "osxCode" -> osxCode = p.getValueAsString();
+                    case "osxLocale" -> osxLocale = p.getValueAsString();
+                    default -> p.skipChildren();
+                }
+            }
+            return new Language(
+                required(ctxt, id, Language.class, "id"),
+                required(ctxt, locale, Language.class, "locale"),
+                required(ctxt, twoLettersCode, Language.class, "twoLettersCode"),
+                required(ctxt, threeLettersCode, Language.class, "threeLettersCode"),
+                required(ctxt, androidCode, Language.class, "androidCode"),
+                required(ctxt, osxCode, Language.class, "osxCode"),
+                required(ctxt, osxLocale, Language.class, "osxLocale")
+            );
+        }
+    }
+
+    private static final class LanguageTranslationDeserializer extends StdDeserializer<LanguageTranslation> {
+        LanguageTranslationDeserializer() {
+            super(LanguageTranslation.class);
+        }
+
+        @Override
+        public LanguageTranslation deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            long stringId = 0;
+            String text = null;
+            Instant createdAt = null;
+            for (var name = firstField(p, ctxt, LanguageTranslation.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "stringId" -> stringId = p.getValueAsLong();
+                    case "text" -> text = readText(p);
+                    case "createdAt" -> createdAt = ctxt.readValue(p, Instant.class);
+                    default -> p.skipChildren();
+                }
+            }
+            return new LanguageTranslation(
+                stringId, text, required(ctxt, createdAt, LanguageTranslation.class, "createdAt")
+            );
+        }
+    }
+
+    /**
+     * @return the text at the current token, or {@code null} if it is anything else, like plural forms
+     */
+    private static @Nullable String readText(JsonParser p) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_STRING) {
+            return p.getText();
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    private static final class LanguageProgressDeserializer extends StdDeserializer<LanguageProgress> {
+        private final CountsDeserializer countsDeserializer = new CountsDeserializer();
+
+        LanguageProgressDeserializer() {
+            super(LanguageProgress.class);
+        }
+
+        @Override
+        public LanguageProgress deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            String languageId = null;
+            LanguageProgress.Counts phrases = null;
+            for (var name = firstField(p, ctxt, LanguageProgress.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "languageId" -> languageId = p.getValueAsString();
+                    case "phrases" -> phrases = countsDeserializer.deserialize(p, ctxt);
+                    default -> p.skipChildren();
+                }
+            }
+            return new LanguageProgress(
+                required(ctxt, languageId, LanguageProgress.class, "languageId"),
+                required(ctxt, phrases, LanguageProgress.class, "phrases")
+            );
+        }
+    }
+
+    private static final class CountsDeserializer extends StdDeserializer<LanguageProgress.Counts> {
+        CountsDeserializer() {
+            super(LanguageProgress.Counts.class);
+        }
+
+        @Override
+        public LanguageProgress.Counts deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            int total = 0;
+            int translated = 0;
+            int approved = 0;
+            for (var name = firstField(p, ctxt, LanguageProgress.Counts.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "total" -> total = p.getValueAsInt();
+                    case "translated" -> translated = p.getValueAsInt();
+                    case "approved" -> approved = p.getValueAsInt();
+                    default -> p.skipChildren();
+                }
+            }
+            return new LanguageProgress.Counts(total, translated, approved);
+        }
+    }
+
+    private static final class PaginationDeserializer extends StdDeserializer<Pagination> {
+        PaginationDeserializer() {
+            super(Pagination.class);
+        }
+
+        @Override
+        public Pagination deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            int offset = 0;
+            int limit = 0;
+            for (var name = firstField(p, ctxt, Pagination.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "offset" -> offset = p.getValueAsInt();
+                    case "limit" -> limit = p.getValueAsInt();
+                    default -> p.skipChildren();
+                }
+            }
+            return new Pagination(offset, limit);
+        }
+    }
+
+    private static final class ProjectDeserializer extends StdDeserializer<Project> {
+        ProjectDeserializer() {
+            super(Project.class);
+        }
+
+        private final LanguageDeserializer languageDeserializer = new LanguageDeserializer();
+
+        @Override
+        public Project deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            Instant lastActivity = null;
+            List<Language> targetLanguages = List.of();
+            for (var name = firstField(p, ctxt, Project.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "lastActivity" -> lastActivity = ctxt.readValue(p, Instant.class);
+                    case "targetLanguages" -> {
+                        if (p.currentToken() != JsonToken.START_ARRAY) {
+                            throw ctxt.wrongTokenException(p, Project.class, JsonToken.START_ARRAY, null);
+                        }
+                        var languages = new ArrayList<Language>();
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            languages.add(languageDeserializer.deserialize(p, ctxt));
+                        }
+                        targetLanguages = languages;
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+            return new Project(required(ctxt, lastActivity, Project.class, "lastActivity"), targetLanguages);
+        }
+    }
+
+    private static final class ProjectBuildDeserializer extends StdDeserializer<ProjectBuild> {
+        private final AttributesDeserializer attributesDeserializer = new AttributesDeserializer();
+
+        ProjectBuildDeserializer() {
+            super(ProjectBuild.class);
+        }
+
+        @Override
+        public ProjectBuild deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            long id = 0;
+            ProjectBuild.Status status = null;
+            int progress = 0;
+            Instant createdAt = null;
+            ProjectBuild.Attributes attributes = null;
+            for (var name = firstField(p, ctxt, ProjectBuild.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "id" -> id = p.getValueAsLong();
+                    case "status" -> status = readStatus(p, ctxt);
+                    case "progress" -> progress = p.getValueAsInt();
+                    case "createdAt" -> createdAt = ctxt.readValue(p, Instant.class);
+                    case "attributes" -> attributes = p.currentToken() == JsonToken.VALUE_NULL
+                        ? null
+                        : attributesDeserializer.deserialize(p, ctxt);
+                    default -> p.skipChildren();
+                }
+            }
+            return new ProjectBuild(
+                id,
+                required(ctxt, status, ProjectBuild.class, "status"),
+                progress,
+                required(ctxt, createdAt, ProjectBuild.class, "createdAt"),
+                attributes
+            );
+        }
+
+        private static ProjectBuild.Status readStatus(JsonParser p, DeserializationContext ctxt) throws IOException {
+            var text = p.getValueAsString();
+            for (var status : ProjectBuild.Status.values()) {
+                if (status.getWireText().equals(text)) {
+                    return status;
+                }
+            }
+            return ctxt.reportInputMismatch(ProjectBuild.Status.class, "Unknown build status \"%s\"", text);
+        }
+    }
+
+    private static final class AttributesDeserializer extends StdDeserializer<ProjectBuild.Attributes> {
+        AttributesDeserializer() {
+            super(ProjectBuild.Attributes.class);
+        }
+
+        @Override
+        public ProjectBuild.Attributes deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            boolean skipUntranslatedStrings = false;
+            List<String> targetLanguageIds = null;
+            Long branchId = null;
+            for (var name = firstField(p, ctxt, ProjectBuild.Attributes.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "skipUntranslatedStrings" -> skipUntranslatedStrings = p.getValueAsBoolean();
+                    case "targetLanguageIds" -> targetLanguageIds = readStrings(p, ctxt);
+                    case "branchId" -> branchId = p.currentToken() == JsonToken.VALUE_NULL ? null : p.getValueAsLong();
+                    default -> p.skipChildren();
+                }
+            }
+            return new ProjectBuild.Attributes(skipUntranslatedStrings, targetLanguageIds, branchId);
+        }
+    }
+
+    private static final class SourceStringDeserializer extends StdDeserializer<SourceString> {
+        SourceStringDeserializer() {
+            super(SourceString.class);
+        }
+
+        @Override
+        public SourceString deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            long id = 0;
+            String identifier = null;
+            String text = null;
+            for (var name = firstField(p, ctxt, SourceString.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "id" -> id = p.getValueAsLong();
+                    case "identifier" -> identifier = p.getValueAsString();
+                    case "text" -> text = readText(p);
+                    default -> p.skipChildren();
+                }
+            }
+            return new SourceString(id, required(ctxt, identifier, SourceString.class, "identifier"), text);
+        }
+    }
+
+    private static final class StorageDeserializer extends StdDeserializer<Storage> {
+        StorageDeserializer() {
+            super(Storage.class);
+        }
+
+        @Override
+        public Storage deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            long id = 0;
+            String fileName = null;
+            for (var name = firstField(p, ctxt, Storage.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "id" -> id = p.getValueAsLong();
+                    case "fileName" -> fileName = p.getValueAsString();
+                    default -> p.skipChildren();
+                }
+            }
+            return new Storage(id, required(ctxt, fileName, Storage.class, "fileName"));
+        }
+    }
+
+    /**
+     * Reads {@link Page Page&lt;T&gt;}, resolving the item deserializer once per {@code T}.
+     */
+    private static final class PageDeserializer extends StdDeserializer<Page<Object>>
+        implements ContextualDeserializer {
+        private final PaginationDeserializer paginationDeserializer = new PaginationDeserializer();
+        private final @Nullable JsonDeserializer<Object> itemDeserializer;
+
+        PageDeserializer(@Nullable JsonDeserializer<Object> itemDeserializer) {
+            super(Page.class);
+            this.itemDeserializer = itemDeserializer;
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext ctxt, @Nullable BeanProperty property)
+            throws JsonMappingException {
+            JavaType pageType = ctxt.getContextualType();
+            if (pageType == null || pageType.containedTypeCount() != 1) {
+                return ctxt.reportBadDefinition(Page.class, "Page needs a resolved item type");
+            }
+            return new PageDeserializer(ctxt.findContextualValueDeserializer(pageType.containedType(0), property));
+        }
+
+        @Override
+        public Page<Object> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (itemDeserializer == null) {
+                return ctxt.reportBadDefinition(Page.class, "Page deserializer was not contextualized");
+            }
+            List<Object> data = null;
+            Pagination pagination = null;
+            for (var name = firstField(p, ctxt, Page.class); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                switch (name) {
+                    case "data" -> {
+                        if (p.currentToken() != JsonToken.START_ARRAY) {
+                            throw ctxt.wrongTokenException(p, Page.class, JsonToken.START_ARRAY, null);
+                        }
+                        data = new ArrayList<>();
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            data.add(itemDeserializer.deserialize(p, ctxt));
+                        }
+                    }
+                    case "pagination" -> pagination = paginationDeserializer.deserialize(p, ctxt);
+                    default -> p.skipChildren();
+                }
+            }
+            return new Page<>(
+                required(ctxt, data, Page.class, "data"),
+                required(ctxt, pagination, Page.class, "pagination")
+            );
+        }
+    }
+}
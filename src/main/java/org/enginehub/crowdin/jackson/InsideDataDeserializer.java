@@ -22,6 +22,8 @@ package org.enginehub.crowdin.jackson;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.BeanProperty;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JavaType;
@@ -35,6 +37,8 @@ import java.io.IOException;
 
 public class InsideDataDeserializer<T> extends StdDeserializer<T> implements ContextualDeserializer, ResolvableDeserializer {
 
+    private static final SerializableString DATA_FIELD = new SerializedString("data");
+
     private final JsonDeserializer<T> originalDeserializer;
 
     protected InsideDataDeserializer(JavaType valueType, JsonDeserializer<T> originalDeserializer) {
@@ -69,7 +73,11 @@ public class InsideDataDeserializer<T> extends StdDeserializer<T> implements Con
     @Override
     public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
         if (p.currentToken() == JsonToken.START_OBJECT) {
-            p.nextToken();
+            // Crowdin puts "data" first, and matching a known name lets the parser skip decoding it
+            if (p.nextFieldName(DATA_FIELD)) {
+                p.nextToken();
+                return deserializeData(p, ctxt);
+            }
         }
         String name = p.currentName();
         while (!"data".equals(name)) {
@@ -84,6 +92,10 @@ public class InsideDataDeserializer<T> extends StdDeserializer<T> implements Con
         }
         p.nextToken();
 
+        return deserializeData(p, ctxt);
+    }
+
+    private T deserializeData(JsonParser p, DeserializationContext ctxt) throws IOException {
         T value = originalDeserializer.deserialize(p, ctxt);
 
         // Clear out the rest of the object
@@ -0,0 +1,61 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call to the Crowdin API, from the first attempt until the response or failure.
+ */
+@Name("org.enginehub.crowdin.CrowdinRequest")
+@Label("Crowdin Request")
+@Category("Crowdin Distributor")
+@StackTrace(false)
+public class CrowdinRequestEvent extends jdk.jfr.Event {
+    @Label("Method")
+    public String method;
+
+    @Label("Endpoint")
+    @Description("Path of the request URL")
+    public String endpoint;
+
+    @Label("Status")
+    @Description("HTTP status of the last attempt, or -1 if it failed without one")
+    public int status;
+
+    @Label("Request Size")
+    @DataAmount
+    public long requestBytes;
+
+    @Label("Response Size")
+    @Description("Content length of the response, or -1 if it wasn't given")
+    @DataAmount
+    public long responseBytes;
+
+    @Label("Retries")
+    @Description("Attempts repeated after being rate limited")
+    public int retries;
+}
@@ -0,0 +1,61 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Validating one translation file against its source.
+ */
+@Name("org.enginehub.crowdin.LocaleValidation")
+@Label("Locale Validation")
+@Category("Crowdin Distributor")
+@StackTrace(false)
+public class LocaleValidationEvent extends jdk.jfr.Event {
+    @Label("File")
+    public String file;
+
+    @Label("Locale")
+    public String locale;
+
+    @Label("Keys")
+    @Description("Entries in the file, or -1 if it couldn't be read")
+    public int keys;
+
+    @Label("Source Keys")
+    public int sourceKeys;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Cached")
+    @Description("Whether it passed before and wasn't validated again")
+    public boolean cached;
+
+    @Label("Passed")
+    public boolean passed;
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildLeaseTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    @TempDir
+    Path directory;
+
+    private void writeStaleLock() throws IOException {
+        var lock = Files.createFile(directory.resolve("key.lock"));
+        Files.setLastModifiedTime(lock, FileTime.from(Instant.now().minus(TTL.multipliedBy(2))));
+    }
+
+    private List<String> directoryContents() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Test
+    void breaksStaleLock() throws IOException {
+        writeStaleLock();
+        var lease = BuildLease.open(directory, "key", TTL);
+
+        assertEquals(Optional.empty(), lease.acquireOrAwait());
+        assertEquals(List.of("key.lock"), directoryContents());
+        lease.release("result");
+        assertEquals(List.of("key.result"), directoryContents());
+    }
+
+    @Test
+    void onlyOneRunBreaksStaleLock() throws Exception {
+        writeStaleLock();
+        var runs = 4;
+        var start = new CountDownLatch(1);
+        var acquired = new CountDownLatch(1);
+        var owners = new ArrayList<BuildLease>();
+        var results = new ArrayList<CompletableFuture<Optional<String>>>();
+        try (var executor = Executors.newFixedThreadPool(runs)) {
+            for (int i = 0; i < runs; i++) {
+                var lease = BuildLease.open(directory, "key", TTL);
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await();
+                        var result = lease.acquireOrAwait();
+                        if (result.isEmpty()) {
+                            synchronized (owners) {
+                                owners.add(lease);
+                            }
+                            acquired.countDown();
+                        }
+                        return result;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, executor));
+            }
+            start.countDown();
+            acquired.await();
+            // Give the others the chance to wrongly break the new lock too
+            Thread.sleep(500);
+            synchronized (owners) {
+                assertEquals(1, owners.size());
+                owners.get(0).release("built");
+            }
+            var built = 0;
+            for (var result : results) {
+                if (result.join().equals(Optional.of("built"))) {
+                    built++;
+                }
+            }
+            assertEquals(runs - 1, built);
+        }
+        var contents = directoryContents();
+        assertTrue(contents.stream().noneMatch(name -> name.endsWith(".broken")), contents::toString);
+    }
+}
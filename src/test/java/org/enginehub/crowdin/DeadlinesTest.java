@@ -0,0 +1,72 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import okhttp3.Request;
+import org.enginehub.crowdin.client.InMemoryTransport;
+import org.enginehub.crowdin.client.SimpleCrowdin;
+import org.enginehub.crowdin.client.response.ProjectBuild;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlinesTest {
+
+    @Test
+    void expiryCancelsTrackedBuild() throws Exception {
+        var requests = new CopyOnWriteArrayList<Request>();
+        var client = new SimpleCrowdin("https://crowdin.test/api/v2", "token", 1, new InMemoryTransport(request -> {
+            requests.add(request);
+            return InMemoryTransport.respond(request, 204, null, new byte[0]);
+        }));
+        var deadlines = new Deadlines(client, Duration.ofMillis(50), Map.of());
+        var build = new ProjectBuild(7, ProjectBuild.Status.IN_PROGRESS, 10, Instant.now(), null);
+        deadlines.trackBuild(build, new CompletableFuture<>());
+
+        assertEquals("Run", deadlines.expired().get(5, TimeUnit.SECONDS));
+        assertTrue(deadlines.expiring());
+        assertEquals(List.of("DELETE"), requests.stream().map(Request::method).toList());
+        assertEquals("/api/v2/projects/1/translations/builds/7", requests.get(0).url().encodedPath());
+    }
+
+    @Test
+    void finishedPhaseDoesNotExpire() throws Exception {
+        var client = new SimpleCrowdin("https://crowdin.test/api/v2", "token", 1, new InMemoryTransport(request -> {
+            throw new AssertionError("No request expected, got " + request);
+        }));
+        var deadlines = new Deadlines(client, null, Map.of("Build", Duration.ofMillis(50)));
+        deadlines.guard("Build", CompletableFuture.completedFuture(null));
+
+        Thread.sleep(200);
+        assertFalse(deadlines.expiring());
+        assertFalse(deadlines.expired().isDone());
+    }
+}
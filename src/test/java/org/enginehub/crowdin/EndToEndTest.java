@@ -0,0 +1,116 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the whole distributor against {@link FakeServer}.
+ */
+class EndToEndTest {
+
+    private static final FakeServer.Options OPTIONS = new FakeServer.Options(Duration.ofMillis(5), 7, 4, 50, 10, 2);
+    private static final Map<String, String> SETTINGS = Map.of("crowdin.distributor.transport", "jdk");
+
+    @TempDir
+    Path workDirectory;
+
+    private static String bundlePath(long buildNumber) {
+        return "org/enginehub/crowdin/" + LoadHarness.MODULE + "/0.1.0/"
+            + LoadHarness.MODULE + "-0.1.0+" + buildNumber + ".zip";
+    }
+
+    private static void assertSucceeded(LoadHarness.Run run) {
+        assertEquals(0, run.exitCode(), () -> String.join("\n", run.log()));
+    }
+
+    @Test
+    void publishesBuiltBundle() throws IOException, InterruptedException {
+        try (var server = new FakeServer(OPTIONS)) {
+            var run = new LoadHarness(server, workDirectory).run(1, SETTINGS);
+
+            assertSucceeded(run);
+            assertTrue(run.phases().keySet().containsAll(List.of("Build", "Download", "Patch", "Publish")));
+            assertTrue(server.rateLimited() > 0, "No request was rate limited");
+            assertEquals(1, server.buildsCreated());
+            var bundle = workDirectory.resolve("published.zip");
+            Files.write(bundle, server.artifact(LoadHarness.REPOSITORY, bundlePath(1)).orElseThrow());
+            try (var zipFs = FileSystems.newFileSystem(bundle)) {
+                assertTrue(Files.exists(zipFs.getPath("/de/strings.json")));
+                assertTrue(Files.exists(zipFs.getPath(FakeServer.SOURCE_PATH)));
+                assertEquals(4, BundleManifest.read(zipFs).orElseThrow().languages().size());
+            }
+        }
+    }
+
+    @Test
+    void partialBuildReusesUnchangedBundle() throws IOException, InterruptedException {
+        try (var server = new FakeServer(OPTIONS)) {
+            var harness = new LoadHarness(server, workDirectory);
+            assertSucceeded(harness.run(1, SETTINGS));
+
+            var settings = new HashMap<>(SETTINGS);
+            settings.put("crowdin.distributor.partial.builds", "true");
+            var run = harness.run(2, settings);
+
+            assertSucceeded(run);
+            assertTrue(run.log().contains("No language changed since the previous bundle, reusing it"));
+            assertEquals(1, server.buildsCreated());
+            assertTrue(server.artifact(LoadHarness.REPOSITORY, bundlePath(2)).isPresent());
+        }
+    }
+
+    @Test
+    void incrementalSyncFetchesChangedLanguages() throws IOException, InterruptedException {
+        try (var server = new FakeServer(OPTIONS)) {
+            var harness = new LoadHarness(server, workDirectory);
+            assertSucceeded(harness.run(1, SETTINGS));
+            server.approve("de");
+
+            var settings = new HashMap<>(SETTINGS);
+            settings.put("crowdin.distributor.incremental.sync", "true");
+            var run = harness.run(2, settings);
+
+            assertSucceeded(run);
+            assertEquals(1, server.buildsCreated());
+            assertEquals(Set.of("de"), server.translationsFetched());
+            var bundle = workDirectory.resolve("published.zip");
+            Files.write(bundle, server.artifact(LoadHarness.REPOSITORY, bundlePath(2)).orElseThrow());
+            try (var zipFs = FileSystems.newFileSystem(bundle)) {
+                assertTrue(Files.readString(zipFs.getPath("/de/strings.json")).contains("[de v1] "));
+            }
+        }
+    }
+}
@@ -0,0 +1,526 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import com.google.common.net.HttpHeaders;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A local stand-in for the Crowdin API and an Artifactory repository, served by the JDK's
+ * {@link HttpServer}, for running the whole distributor without either service.
+ *
+ * <p>
+ * The project has one source file, {@code /strings.json}, fully translated into every language.
+ * Builds finish after a few status checks, and their bundles are served with Range support.
+ * Artifactory keeps whatever is deployed to it in memory.
+ * </p>
+ */
+final class FakeServer implements AutoCloseable {
+
+    static final String SOURCE_PATH = "/strings.json";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern PROJECT = Pattern.compile("/projects/\\d+(.*)");
+    private static final Pattern BUILD = Pattern.compile("/translations/builds/(\\d+)(/download)?");
+    private static final Pattern TRANSLATIONS = Pattern.compile("/languages/([^/]+)/translations");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+    // Plenty of real codes, so the bundle looks like Crowdin's. More languages get made-up codes
+    private static final List<String> LANGUAGE_IDS = List.of(
+        "de", "fr", "es-ES", "it", "ja", "ko", "nl", "pl", "pt-BR", "pt-PT", "ru", "sv-SE", "tr",
+        "uk", "zh-CN", "zh-TW", "cs", "da", "fi", "hu", "no", "ro"
+    );
+
+    /**
+     * @param latency added to every response
+     * @param rateLimitEvery answer every nth Crowdin API request with a 429, {@code 0} for never
+     * @param locales how many languages the project is translated into
+     * @param keys how many strings the source file has
+     * @param valueLength how long each string is, which scales the bundle
+     * @param buildPolls how many status checks a build takes to finish
+     */
+    record Options(Duration latency, int rateLimitEvery, int locales, int keys, int valueLength, int buildPolls) {
+        static final Options DEFAULT = new Options(Duration.ZERO, 0, 5, 100, 20, 2);
+    }
+
+    private static final class Build {
+        private final long id;
+        private final Instant createdAt;
+        private final @Nullable List<String> targetLanguageIds;
+        private final byte[] bundle;
+        private int polls;
+        private String status = "inProgress";
+
+        private Build(long id, @Nullable List<String> targetLanguageIds, byte[] bundle) {
+            this.id = id;
+            this.createdAt = Instant.now();
+            this.targetLanguageIds = targetLanguageIds;
+            this.bundle = bundle;
+        }
+    }
+
+    private final Options options;
+    private final HttpServer server;
+    private final List<String> languageIds;
+    private final AtomicInteger crowdinRequests = new AtomicInteger();
+    private final AtomicInteger rateLimited = new AtomicInteger();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<Long, byte[]> storages = new ConcurrentHashMap<>();
+    private final Map<Long, Build> builds = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> artifacts = new ConcurrentHashMap<>();
+    private volatile byte[] source;
+    private volatile Instant lastActivity = Instant.now().minus(Duration.ofHours(1));
+    private final Instant translatedAt = lastActivity;
+    // Approvals and when they were made, by language ID
+    private final Map<String, Integer> approvals = new ConcurrentHashMap<>();
+    private final Map<String, Instant> approvedAt = new ConcurrentHashMap<>();
+    private final Set<String> translationsFetched = ConcurrentHashMap.newKeySet();
+
+    FakeServer(Options options) throws IOException {
+        this.options = options;
+        var ids = new ArrayList<String>();
+        for (int i = 0; i < options.locales(); i++) {
+            ids.add(i < LANGUAGE_IDS.size() ? LANGUAGE_IDS.get(i) : "x-" + i);
+        }
+        this.languageIds = List.copyOf(ids);
+        this.source = sourceContent(options.keys(), options.valueLength());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return a source file with {@code keys} strings of about {@code valueLength} characters
+     */
+    static byte[] sourceContent(int keys, int valueLength) {
+        var strings = new LinkedHashMap<String, String>();
+        for (int i = 0; i < keys; i++) {
+            strings.put("key." + i, "Value " + i + " of {0} " + "x".repeat(valueLength));
+        }
+        try {
+            return MAPPER.writerWithDefaultPrettyPrinter().writeValueAsBytes(strings);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    String crowdinUrl() {
+        return baseUrl() + "/api/v2";
+    }
+
+    String artifactoryUrl() {
+        return baseUrl() + "/artifactory";
+    }
+
+    /**
+     * @return the source file as Crowdin has it
+     */
+    byte[] source() {
+        return source;
+    }
+
+    /**
+     * Approve a new translation of every string in {@code languageId}.
+     */
+    void approve(String languageId) {
+        approvals.merge(languageId, 1, Integer::sum);
+        approvedAt.put(languageId, Instant.now());
+        lastActivity = Instant.now();
+    }
+
+    /**
+     * @return the language IDs whose translations were fetched
+     */
+    Set<String> translationsFetched() {
+        return Set.copyOf(translationsFetched);
+    }
+
+    int buildsCreated() {
+        return builds.size();
+    }
+
+    int rateLimited() {
+        return rateLimited.get();
+    }
+
+    Optional<byte[]> artifact(String repository, String path) {
+        return Optional.ofNullable(artifacts.get(repository + "/" + path));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Thread.sleep(options.latency().toMillis());
+            var path = exchange.getRequestURI().getRawPath();
+            if (path.startsWith("/api/v2/")) {
+                handleCrowdin(exchange, path.substring("/api/v2".length()));
+            } else if (path.startsWith("/artifactory/")) {
+                // Artifact names have '+' in them, which URLDecoder would turn into spaces
+                handleArtifactory(exchange, exchange.getRequestURI().getPath().substring("/artifactory".length()));
+            } else if (path.equals("/download/source")) {
+                respond(exchange, 200, "application/octet-stream", source);
+            } else if (path.startsWith("/download/builds/")) {
+                var build = builds.get(Long.parseLong(path.substring("/download/builds/".length())));
+                serveRanges(exchange, build.bundle);
+            } else {
+                respond(exchange, 404, null, new byte[0]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // Bubbles up to the client as a failed request, rather than a hung one
+            e.printStackTrace();
+            exchange.sendResponseHeaders(500, -1);
+        }
+    }
+
+    private void handleCrowdin(HttpExchange exchange, String path) throws IOException {
+        var every = options.rateLimitEvery();
+        if (every > 0 && crowdinRequests.incrementAndGet() % every == 0) {
+            rateLimited.incrementAndGet();
+            respond(exchange, 429, "application/json", "{}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        var method = exchange.getRequestMethod();
+        if (path.equals("/storages") && method.equals("POST")) {
+            var id = nextId.getAndIncrement();
+            storages.put(id, exchange.getRequestBody().readAllBytes());
+            var fileName = exchange.getRequestHeaders().getFirst("Crowdin-API-FileName");
+            respondData(exchange, Map.of("id", id, "fileName", fileName));
+            return;
+        }
+        var project = PROJECT.matcher(path);
+        if (!project.matches()) {
+            respond(exchange, 404, null, new byte[0]);
+            return;
+        }
+        var rest = project.group(1);
+        var build = BUILD.matcher(rest);
+        var translations = TRANSLATIONS.matcher(rest);
+        switch (rest) {
+            case "" -> respondData(exchange, Map.of(
+                "lastActivity", lastActivity.toString(),
+                "targetLanguages", languageIds.stream().map(FakeServer::language).toList()
+            ));
+            case "/files" -> respondPage(exchange, List.of(Map.of("id", 1, "path", SOURCE_PATH)));
+            case "/files/1/download" -> respondData(exchange, Map.of("url", baseUrl() + "/download/source"));
+            case "/files/1" -> {
+                var storageId = MAPPER.readTree(exchange.getRequestBody()).get("storageId").asLong();
+                source = storages.remove(storageId);
+                lastActivity = Instant.now();
+                respondData(exchange, Map.of("id", 1, "path", SOURCE_PATH));
+            }
+            case "/branches" -> respondPage(exchange, List.of());
+            case "/languages/progress" -> respondPage(exchange, languageIds.stream()
+                .map(id -> Map.of("languageId", id, "phrases", Map.of(
+                    "total", options.keys(), "translated", options.keys(),
+                    "approved", approvals.containsKey(id) ? options.keys() : 0
+                )))
+                .toList());
+            case "/strings" -> respondPage(exchange, sourceStrings().entrySet().stream()
+                .map(entry -> Map.of(
+                    "id", stringId(entry.getKey()), "identifier", entry.getKey(), "text", entry.getValue()
+                ))
+                .toList());
+            case "/translations/builds" -> {
+                if (method.equals("POST")) {
+                    respondData(exchange, buildData(createBuild(MAPPER.readTree(exchange.getRequestBody()))));
+                } else {
+                    respondPage(exchange, builds.values().stream().map(FakeServer::buildData).toList());
+                }
+            }
+            default -> {
+                if (build.matches()) {
+                    handleBuild(exchange, builds.get(Long.parseLong(build.group(1))), build.group(2) != null);
+                } else if (translations.matches()) {
+                    var languageId = translations.group(1);
+                    translationsFetched.add(languageId);
+                    var createdAt = approvedAt.getOrDefault(languageId, translatedAt);
+                    respondPage(exchange, sourceStrings().entrySet().stream()
+                        .map(entry -> Map.of(
+                            "stringId", stringId(entry.getKey()),
+                            "text", translate(languageId, entry.getValue()),
+                            "createdAt", createdAt.toString()
+                        ))
+                        .toList());
+                } else {
+                    respond(exchange, 404, null, new byte[0]);
+                }
+            }
+        }
+    }
+
+    private void handleBuild(HttpExchange exchange, Build build, boolean download) throws IOException {
+        if (download) {
+            respondData(exchange, Map.of("url", baseUrl() + "/download/builds/" + build.id));
+            return;
+        }
+        synchronized (build) {
+            if (exchange.getRequestMethod().equals("DELETE")) {
+                build.status = "canceled";
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (build.status.equals("inProgress") && ++build.polls >= options.buildPolls()) {
+                build.status = "finished";
+            }
+        }
+        respondData(exchange, buildData(build));
+    }
+
+    private Build createBuild(JsonNode request) throws IOException {
+        List<String> targetLanguageIds = null;
+        if (request.has("targetLanguageIds")) {
+            targetLanguageIds = new ArrayList<>();
+            for (var id : request.get("targetLanguageIds")) {
+                targetLanguageIds.add(id.asText());
+            }
+        }
+        var strings = sourceStrings();
+        var bundle = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(bundle)) {
+            for (var languageId : targetLanguageIds == null ? languageIds : targetLanguageIds) {
+                var translated = new LinkedHashMap<String, String>();
+                strings.forEach((key, value) -> translated.put(key, translate(languageId, value)));
+                zip.putNextEntry(new ZipEntry(languageId + SOURCE_PATH));
+                zip.write(MAPPER.writerWithDefaultPrettyPrinter().writeValueAsBytes(translated));
+                zip.closeEntry();
+            }
+        }
+        var build = new Build(nextId.getAndIncrement(), targetLanguageIds, bundle.toByteArray());
+        builds.put(build.id, build);
+        return build;
+    }
+
+    private static Map<String, Object> buildData(Build build) {
+        var attributes = new LinkedHashMap<String, Object>();
+        attributes.put("skipUntranslatedStrings", true);
+        attributes.put("targetLanguageIds", build.targetLanguageIds == null ? List.of() : build.targetLanguageIds);
+        return Map.of(
+            "id", build.id,
+            "status", build.status,
+            "progress", build.status.equals("finished") ? 100 : 50,
+            "createdAt", build.createdAt.toString(),
+            "attributes", attributes
+        );
+    }
+
+    private static Map<String, String> language(String id) {
+        var twoLetters = id.substring(0, 2);
+        return Map.of(
+            "id", id,
+            "locale", id.contains("-") ? id : id + "-" + id.toUpperCase(),
+            "twoLettersCode", twoLetters,
+            "threeLettersCode", twoLetters + "x",
+            "androidCode", id.replace("-", "-r"),
+            "osxCode", id + ".lproj",
+            "osxLocale", id.replace('-', '_')
+        );
+    }
+
+    private Map<String, String> sourceStrings() throws IOException {
+        var strings = new LinkedHashMap<String, String>();
+        MAPPER.readTree(source).fields().forEachRemaining(
+            entry -> strings.put(entry.getKey(), entry.getValue().asText())
+        );
+        return strings;
+    }
+
+    private static long stringId(String key) {
+        return Long.parseLong(key.substring(key.lastIndexOf('.') + 1)) + 1;
+    }
+
+    private String translate(String languageId, String text) {
+        var approved = approvals.getOrDefault(languageId, 0);
+        return "[" + languageId + (approved == 0 ? "" : " v" + approved) + "] " + text;
+    }
+
+    @SuppressWarnings("deprecation") // S3, which serves Crowdin's bundles, uses the MD5 as the ETag
+    private void serveRanges(HttpExchange exchange, byte[] content) throws IOException {
+        var etag = "\"" + Hashing.md5().hashBytes(content) + "\"";
+        var headers = exchange.getResponseHeaders();
+        headers.set(HttpHeaders.ETAG, etag);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        var range = exchange.getRequestHeaders().getFirst(HttpHeaders.RANGE);
+        var ifRange = exchange.getRequestHeaders().getFirst(HttpHeaders.IF_RANGE);
+        var matcher = RANGE.matcher(range == null ? "" : range);
+        // A stale If-Range gets the whole current file, like from a real server
+        if (!matcher.matches() || (ifRange != null && !ifRange.equals(etag))) {
+            respond(exchange, 200, "application/zip", content);
+            return;
+        }
+        var start = Integer.parseInt(matcher.group(1));
+        var end = matcher.group(2).isEmpty()
+            ? content.length - 1
+            : Math.min(Integer.parseInt(matcher.group(2)), content.length - 1);
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + content.length);
+        var part = new byte[end - start + 1];
+        System.arraycopy(content, start, part, 0, part.length);
+        respond(exchange, 206, "application/zip", part);
+    }
+
+    @SuppressWarnings("deprecation") // Artifactory identifies files by SHA-1
+    private void handleArtifactory(HttpExchange exchange, String path) throws IOException {
+        var method = exchange.getRequestMethod();
+        if (path.startsWith("/api/storage/")) {
+            var item = path.substring("/api/storage/".length());
+            var children = artifacts.keySet().stream()
+                .filter(key -> key.startsWith(item + "/"))
+                .map(key -> key.substring(item.length() + 1))
+                .map(child -> child.contains("/")
+                    ? Map.of("uri", "/" + child.substring(0, child.indexOf('/')), "folder", true)
+                    : Map.of("uri", "/" + child, "folder", false))
+                .distinct()
+                .toList();
+            if (children.isEmpty()) {
+                respond(exchange, 404, null, new byte[0]);
+                return;
+            }
+            var separator = item.indexOf('/');
+            respondJson(exchange, 200, Map.of(
+                "repo", item.substring(0, separator),
+                "path", item.substring(separator),
+                "children", children,
+                "uri", artifactoryUrl() + path
+            ));
+            return;
+        }
+        var item = path.substring(1);
+        switch (method) {
+            case "GET" -> {
+                var content = artifacts.get(item);
+                respond(exchange, content == null ? 404 : 200, "application/octet-stream",
+                    content == null ? new byte[0] : content);
+            }
+            case "PUT" -> {
+                var requestHeaders = exchange.getRequestHeaders();
+                var sha1 = requestHeaders.getFirst("X-Checksum-Sha1");
+                byte[] content;
+                if ("true".equals(requestHeaders.getFirst("X-Checksum-Deploy"))) {
+                    // Deploying by checksum only works for content Artifactory already has
+                    content = artifacts.values().stream()
+                        .filter(existing -> Hashing.sha1().hashBytes(existing).toString().equals(sha1))
+                        .findAny()
+                        .orElse(null);
+                    if (content == null) {
+                        respondJson(exchange, 404, Map.of("errors", List.of(Map.of(
+                            "status", 404, "message", "Checksum deploy failed, no content with SHA-1 " + sha1
+                        ))));
+                        return;
+                    }
+                } else {
+                    content = exchange.getRequestBody().readAllBytes();
+                }
+                artifacts.put(item, content);
+                var separator = item.indexOf('/');
+                respondJson(exchange, 201, Map.of(
+                    "repo", item.substring(0, separator),
+                    "path", item.substring(separator),
+                    "created", Instant.now().toString(),
+                    "downloadUri", artifactoryUrl() + path,
+                    "size", String.valueOf(content.length),
+                    "checksums", Map.of(
+                        "sha1", Hashing.sha1().hashBytes(content).toString(),
+                        "md5", Hashing.md5().hashBytes(content).toString()
+                    ),
+                    "uri", artifactoryUrl() + "/api/storage" + path
+                ));
+            }
+            default -> respond(exchange, 405, null, new byte[0]);
+        }
+    }
+
+    private void respondPage(HttpExchange exchange, List<?> items) throws IOException {
+        var query = exchange.getRequestURI().getQuery();
+        var offset = 0;
+        var limit = 25;
+        if (query != null) {
+            for (var parameter : query.split("&")) {
+                var pair = parameter.split("=", 2);
+                switch (pair[0]) {
+                    case "offset" -> offset = Integer.parseInt(pair[1]);
+                    case "limit" -> limit = Integer.parseInt(pair[1]);
+                    default -> {
+                    }
+                }
+            }
+        }
+        var page = items.subList(Math.min(offset, items.size()), Math.min(offset + limit, items.size()));
+        respondJson(exchange, 200, Map.of(
+            "data", page.stream().map(item -> Map.of("data", item)).toList(),
+            "pagination", Map.of("offset", offset, "limit", limit)
+        ));
+    }
+
+    private void respondData(HttpExchange exchange, Object data) throws IOException {
+        respondJson(exchange, 200, Map.of("data", data));
+    }
+
+    private void respondJson(HttpExchange exchange, int code, Object body) throws IOException {
+        respond(exchange, code, "application/json", MAPPER.writeValueAsBytes(body));
+    }
+
+    private static void respond(HttpExchange exchange, int code, @Nullable String contentType,
+                                byte[] body) throws IOException {
+        if (contentType != null) {
+            exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, contentType);
+        }
+        exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FallbackLocalesTest {
+
+    private static final TranslationFormat JSON = TranslationFormat.forPath("/strings.json").orElseThrow();
+    private static final Map<String, String> SOURCE = Map.of("a", "A", "b", "B");
+
+    @TempDir
+    Path directory;
+
+    private static void write(FileSystem zipFs, String path, Map<String, String> messages) throws IOException {
+        var output = new ByteArrayOutputStream();
+        JSON.write(messages, output);
+        Files.createDirectories(zipFs.getPath(path).getParent());
+        Files.write(zipFs.getPath(path), output.toByteArray());
+    }
+
+    private static Map<String, String> read(FileSystem zipFs, String path) throws IOException {
+        try (var input = Files.newInputStream(zipFs.getPath(path))) {
+            return JSON.read(input);
+        }
+    }
+
+    private FileSystem bundle() throws IOException {
+        var zipFs = FileSystems.newFileSystem(directory.resolve("bundle.zip"), Map.of("create", true));
+        write(zipFs, "/strings.json", SOURCE);
+        return zipFs;
+    }
+
+    @Test
+    void fillsFromNearestAncestorThenSource() throws IOException {
+        try (var zipFs = bundle()) {
+            write(zipFs, "/pt/strings.json", Map.of("a", "A-pt"));
+            write(zipFs, "/pt-BR/strings.json", Map.of());
+
+            var filled = FallbackLocales.parse("pt-BR:pt").resolve(zipFs, "/strings.json", JSON, SOURCE, Map.of());
+
+            assertEquals(Map.of("a", "A-pt", "b", "B"), read(zipFs, "/pt-BR/strings.json"));
+            assertEquals(Map.of("a", "A-pt", "b", "B"), read(zipFs, "/pt/strings.json"));
+            assertEquals(List.of("b"), filled.get("/pt/strings.json"));
+            assertEquals(Set.of("a", "b"), Set.copyOf(filled.get("/pt-BR/strings.json")));
+        }
+    }
+
+    @Test
+    void refillsWhatAPreviousRunFilled() throws IOException {
+        try (var zipFs = bundle()) {
+            // pt-BR was kept from the previous bundle, with "a" filled from what pt said then
+            write(zipFs, "/pt/strings.json", Map.of("a", "A-pt-new"));
+            write(zipFs, "/pt-BR/strings.json", Map.of("a", "A-pt-old", "b", "B-br"));
+
+            var filled = FallbackLocales.parse("pt-BR:pt").resolve(
+                zipFs, "/strings.json", JSON, SOURCE, Map.of("/pt-BR/strings.json", List.of("a"))
+            );
+
+            assertEquals(Map.of("a", "A-pt-new", "b", "B-br"), read(zipFs, "/pt-BR/strings.json"));
+            assertEquals(List.of("a"), filled.get("/pt-BR/strings.json"));
+        }
+    }
+
+    @Test
+    void clearsFillsOfLocalesLeftOutOfTheGraph() throws IOException {
+        try (var zipFs = bundle()) {
+            write(zipFs, "/es/strings.json", Map.of("a", "A-es", "b", "B"));
+
+            var filled = FallbackLocales.parse("").resolve(
+                zipFs, "/strings.json", JSON, SOURCE, Map.of("/es/strings.json", List.of("b"))
+            );
+
+            assertEquals(Map.of("a", "A-es"), read(zipFs, "/es/strings.json"));
+            assertEquals(Map.of(), filled);
+        }
+    }
+
+    @Test
+    void keepsNesting() throws IOException {
+        var yaml = TranslationFormat.forPath("/strings.yml").orElseThrow();
+        try (var zipFs = bundle()) {
+            Files.writeString(zipFs.getPath("/strings.yml"), """
+                menu:
+                  open: Open
+                  close: Close
+                title: Title
+                """);
+            Files.createDirectories(zipFs.getPath("/de"));
+            Files.writeString(zipFs.getPath("/de/strings.yml"), """
+                menu:
+                  open: Öffnen
+                """);
+            Map<String, String> source;
+            try (var input = Files.newInputStream(zipFs.getPath("/strings.yml"))) {
+                source = yaml.read(input);
+            }
+
+            FallbackLocales.parse("de:en").resolve(zipFs, "/strings.yml", yaml, source, Map.of());
+
+            var resolved = Files.readString(zipFs.getPath("/de/strings.yml"));
+            try (var input = Files.newInputStream(zipFs.getPath("/de/strings.yml"))) {
+                assertEquals(
+                    Map.of("menu.open", "Öffnen", "menu.close", "Close", "title", "Title"), yaml.read(input)
+                );
+            }
+            assertTrue(resolved.contains("menu:\n"), resolved);
+            assertFalse(resolved.contains("menu.close"), resolved);
+        }
+    }
+}
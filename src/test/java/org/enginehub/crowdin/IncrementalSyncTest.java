@@ -0,0 +1,131 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.enginehub.crowdin.client.InMemoryTransport;
+import org.enginehub.crowdin.client.SimpleCrowdin;
+import org.enginehub.crowdin.client.response.FileInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalSyncTest {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final Instant SINCE = Instant.parse("2024-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Crowdin with strings 1 and 2 of every file, {@code menu.open} and {@code title}, and a new
+     * German translation of the first.
+     */
+    private static Response respond(Request request) {
+        var path = request.url().encodedPath();
+        String data;
+        if (!"0".equals(request.url().queryParameter("offset"))) {
+            data = "";
+        } else if (path.endsWith("/strings")) {
+            data = "{\"data\":{\"id\":1,\"identifier\":\"menu.open\",\"text\":\"Open\"}},"
+                + "{\"data\":{\"id\":2,\"identifier\":\"title\",\"text\":\"Title\"}}";
+        } else if (path.endsWith("/languages/de/translations")) {
+            data = "{\"data\":{\"stringId\":1,\"text\":\"Aufmachen\",\"createdAt\":\"2024-02-01T00:00:00Z\"}}";
+        } else {
+            return InMemoryTransport.respond(request, 404, null, new byte[0]);
+        }
+        var body = "{\"data\":[" + data + "],\"pagination\":{\"offset\":0,\"limit\":500}}";
+        return InMemoryTransport.respond(request, 200, JSON, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String sync(String sourcePath, String source, String german) throws IOException {
+        var bundle = directory.resolve("bundle.zip");
+        try (var zipFs = FileSystems.newFileSystem(bundle, Map.of("create", true))) {
+            Files.writeString(zipFs.getPath(sourcePath), source);
+            Files.createDirectories(zipFs.getPath("/de"));
+            Files.writeString(zipFs.getPath("/de" + sourcePath), german);
+        }
+        try (var transport = new InMemoryTransport(IncrementalSyncTest::respond);
+             var client = new SimpleCrowdin("https://crowdin.test/api/v2", "token", 1, transport)) {
+            new IncrementalSync(SINCE, Map.of("de", "de"))
+                .apply(client, bundle, List.of(new FileInfo(1, sourcePath)))
+                .join();
+        }
+        try (var zipFs = FileSystems.newFileSystem(bundle)) {
+            return Files.readString(zipFs.getPath("/de" + sourcePath));
+        }
+    }
+
+    @Test
+    void keepsNesting() throws IOException {
+        var synced = sync("/strings.yml", """
+            menu:
+              open: Open
+            title: Title
+            """, """
+            menu:
+              open: Öffnen
+            """);
+
+        var yaml = TranslationFormat.forPath("/strings.yml").orElseThrow();
+        var messages = yaml.read(new ByteArrayInputStream(synced.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Map.of("menu.open", "Aufmachen"), messages);
+        assertTrue(synced.contains("menu:\n"), synced);
+        assertFalse(synced.contains("menu.open"), synced);
+    }
+
+    @Test
+    void keepsPropertiesLayout() throws IOException {
+        var synced = sync("/strings.properties", """
+            # Menu
+            menu.open=Open
+            title=Title
+            """, """
+            # Übersetzt
+            title=Titel
+            # Menu
+            menu.open=Öffnen
+            """);
+
+        assertEquals("""
+            # Übersetzt
+            title=Titel
+            # Menu
+            menu.open=Aufmachen
+            """, synced);
+    }
+}
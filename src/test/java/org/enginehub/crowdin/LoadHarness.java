@@ -0,0 +1,174 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the distributor against a {@link FakeServer} and records how long each run and each of its
+ * phases took, for load testing and reproducing slow runs without Crowdin or Artifactory.
+ *
+ * <p>
+ * Every run is a separate JVM, started like the distribution does, so runs don't share
+ * connections or warmed-up code.
+ * </p>
+ */
+final class LoadHarness {
+
+    static final String MODULE = "harness";
+    static final String REPOSITORY = "translations";
+
+    private static final Pattern TIMING = Pattern.compile("\\[timing] (.+?)( \\(failed\\))?: (\\d+)ms");
+
+    /**
+     * @param phases how long each phase took, from the {@code [timing]} log lines
+     * @param log everything the run logged
+     */
+    record Run(int exitCode, Duration elapsed, Map<String, Duration> phases, List<String> log) {
+    }
+
+    private final FakeServer server;
+    private final Path sourceFile;
+
+    /**
+     * @param workDirectory where the local copy of the source file is kept
+     */
+    LoadHarness(FakeServer server, Path workDirectory) throws IOException {
+        this.server = server;
+        this.sourceFile = workDirectory.resolve(FakeServer.SOURCE_PATH.substring(1));
+        Files.write(sourceFile, server.source());
+    }
+
+    Path sourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * Run the distributor once, publishing as {@code buildNumber}.
+     *
+     * @param settings more {@code crowdin.distributor.*} system properties, e.g. to pick the transport
+     */
+    Run run(long buildNumber, Map<String, String> settings) throws IOException, InterruptedException {
+        var properties = new LinkedHashMap<String, String>();
+        properties.put("crowdin.distributor.token", "harness");
+        properties.put("crowdin.distributor.project.id", "1");
+        properties.put("crowdin.distributor.api.url", server.crowdinUrl());
+        properties.put("crowdin.distributor.source.file", sourceFile.toString());
+        properties.put("crowdin.distributor.module", MODULE);
+        properties.put("crowdin.distributor.artifactory.url", server.artifactoryUrl());
+        properties.put("crowdin.distributor.artifactory.repo", REPOSITORY);
+        properties.put("crowdin.distributor.artifactory.user", "harness");
+        properties.put("crowdin.distributor.artifactory.password", "harness");
+        properties.put("crowdin.distributor.build.number", String.valueOf(buildNumber));
+        properties.putAll(settings);
+
+        var command = new ArrayList<String>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        properties.forEach((name, value) -> command.add("-D" + name + "=" + value));
+        command.add(Main.class.getName());
+
+        var start = System.nanoTime();
+        // The distributor reads gradle.properties from the working directory, as in the project
+        var process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        var log = new ArrayList<String>();
+        var phases = new LinkedHashMap<String, Duration>();
+        try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                log.add(line);
+                var timing = TIMING.matcher(line);
+                if (timing.matches()) {
+                    phases.put(timing.group(1), Duration.ofMillis(Long.parseLong(timing.group(3))));
+                }
+            }
+        }
+        var exitCode = process.waitFor();
+        return new Run(exitCode, Duration.ofNanos(System.nanoTime() - start), phases, log);
+    }
+
+    /**
+     * Run the distributor {@code harness.runs} times (default 5) and print the timings. The fake
+     * server is set up by {@code harness.latency.ms}, {@code harness.rate.limit.every},
+     * {@code harness.locales}, {@code harness.keys}, {@code harness.value.length} and
+     * {@code harness.build.polls}, see {@link FakeServer.Options}. Any {@code crowdin.distributor.*}
+     * system property is passed on to the distributor.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        var defaults = FakeServer.Options.DEFAULT;
+        var options = new FakeServer.Options(
+            Duration.ofMillis(Long.getLong("harness.latency.ms", defaults.latency().toMillis())),
+            Integer.getInteger("harness.rate.limit.every", defaults.rateLimitEvery()),
+            Integer.getInteger("harness.locales", defaults.locales()),
+            Integer.getInteger("harness.keys", defaults.keys()),
+            Integer.getInteger("harness.value.length", defaults.valueLength()),
+            Integer.getInteger("harness.build.polls", defaults.buildPolls())
+        );
+        var runs = Integer.getInteger("harness.runs", 5);
+        var settings = new TreeMap<String, String>();
+        System.getProperties().stringPropertyNames().stream()
+            .filter(name -> name.startsWith("crowdin.distributor."))
+            .forEach(name -> settings.put(name, System.getProperty(name)));
+
+        System.out.println("Running " + runs + " times against " + options);
+        var workDirectory = Files.createTempDirectory("crowdin-distributor-harness");
+        var phases = new TreeMap<String, List<Duration>>();
+        try (var server = new FakeServer(options)) {
+            var harness = new LoadHarness(server, workDirectory);
+            for (int i = 1; i <= runs; i++) {
+                var run = harness.run(i, settings);
+                System.out.println(
+                    "Run " + i + ": exit code " + run.exitCode() + " in " + run.elapsed().toMillis() + "ms"
+                );
+                if (run.exitCode() != 0) {
+                    run.log().forEach(System.out::println);
+                }
+                run.phases().forEach(
+                    (phase, elapsed) -> phases.computeIfAbsent(phase, p -> new ArrayList<>()).add(elapsed)
+                );
+            }
+            System.out.println(server.rateLimited() + " requests were rate limited");
+        } finally {
+            Files.deleteIfExists(workDirectory.resolve(FakeServer.SOURCE_PATH.substring(1)));
+            Files.deleteIfExists(workDirectory);
+        }
+        phases.forEach((phase, durations) -> {
+            var millis = durations.stream().mapToLong(Duration::toMillis).sorted().toArray();
+            System.out.printf(
+                "%-30s min %6dms  median %6dms  max %6dms%n",
+                phase, millis[0], millis[millis.length / 2], millis[millis.length - 1]
+            );
+        });
+    }
+}
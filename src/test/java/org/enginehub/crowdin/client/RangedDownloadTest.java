@@ -0,0 +1,210 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin.client;
+
+import com.google.common.net.HttpHeaders;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RangedDownloadTest {
+
+    private static final MediaType ZIP = MediaType.get("application/zip");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    private static byte[] content(int size) {
+        var content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private static String etag(byte[] content) {
+        try {
+            return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Answer a Range request like S3 does, but only send the first {@code sendAtMost} bytes of the
+     * part before dropping the connection.
+     */
+    private static void partial(HttpExchange exchange, byte[] content, int sendAtMost) throws IOException {
+        var range = RANGE.matcher(exchange.getRequestHeaders().getFirst(HttpHeaders.RANGE));
+        if (!range.matches()) {
+            throw new IllegalStateException("Bad range");
+        }
+        var start = Integer.parseInt(range.group(1));
+        var end = Math.min(Integer.parseInt(range.group(2)), content.length - 1);
+        var headers = exchange.getResponseHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, ZIP.toString());
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + content.length);
+        headers.set(HttpHeaders.ETAG, etag(content));
+        var length = end - start + 1;
+        exchange.sendResponseHeaders(206, length);
+        try (exchange) {
+            exchange.getResponseBody().write(content, start, Math.min(length, sendAtMost));
+        } catch (IOException e) {
+            // Closing with bytes missing drops the connection, which is the point
+        }
+    }
+
+    private static void whole(HttpExchange exchange, byte[] content) throws IOException {
+        exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, ZIP.toString());
+        exchange.getResponseHeaders().set(HttpHeaders.ETAG, etag(content));
+        exchange.sendResponseHeaders(200, content.length);
+        try (exchange) {
+            exchange.getResponseBody().write(content);
+        }
+    }
+
+    @TempDir
+    Path directory;
+
+    private final List<HttpExchange> requests = new CopyOnWriteArrayList<>();
+    private final JdkHttpTransport transport = JdkHttpTransport.create();
+    // The server writes while holding a lock, which pins a virtual thread to its carrier. With few
+    // carriers the client could then never get to read, so the server gets platform threads
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    private HttpServer server;
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        if (server != null) {
+            server.stop(0);
+        }
+        serverExecutor.shutdownNow();
+    }
+
+    private RangedDownload download(Path destination, HttpHandler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", exchange -> {
+            requests.add(exchange);
+            handler.handle(exchange);
+        });
+        server.start();
+        var url = "http://127.0.0.1:" + server.getAddress().getPort();
+        var client = new SimpleCrowdin(url + "/api/v2", "token", 1, transport);
+        return new RangedDownload(client, HttpUrl.get(url + "/bundle.zip"), destination, ZIP);
+    }
+
+    @Test
+    void downloadsWholeFileWhenRangeIsIgnored() throws IOException {
+        var content = content(100_000);
+        var destination = directory.resolve("bundle.zip");
+
+        download(destination, exchange -> whole(exchange, content)).start().join();
+
+        assertArrayEquals(content, Files.readAllBytes(destination));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void downloadsInChunks() throws IOException {
+        var content = content(8 * 1024 * 1024 + 1000);
+        var destination = directory.resolve("bundle.zip");
+
+        download(destination, exchange -> partial(exchange, content, Integer.MAX_VALUE)).start().join();
+
+        assertArrayEquals(content, Files.readAllBytes(destination));
+        assertEquals(2, requests.size());
+        var etag = etag(content);
+        assertNull(requests.get(0).getRequestHeaders().getFirst(HttpHeaders.IF_RANGE));
+        assertEquals(etag, requests.get(1).getRequestHeaders().getFirst(HttpHeaders.IF_RANGE));
+        assertEquals("bytes=8388608-8389607", requests.get(1).getRequestHeaders().getFirst(HttpHeaders.RANGE));
+    }
+
+    @Test
+    void resumesAfterDisconnect() throws IOException {
+        var content = content(100_000);
+        var destination = directory.resolve("bundle.zip");
+
+        download(destination, exchange -> partial(exchange, content, requests.size() == 1 ? 30_000 : Integer.MAX_VALUE))
+            .start().join();
+
+        assertArrayEquals(content, Files.readAllBytes(destination));
+        assertEquals(2, requests.size());
+        var resumed = requests.get(1).getRequestHeaders();
+        // Picks up where the dropped connection stopped, and only if the file is the same
+        var range = RANGE.matcher(resumed.getFirst(HttpHeaders.RANGE));
+        assertTrue(range.matches());
+        assertTrue(Integer.parseInt(range.group(1)) > 0, "resumed from the start");
+        assertEquals("99999", range.group(2));
+        assertEquals(etag(content), resumed.getFirst(HttpHeaders.IF_RANGE));
+    }
+
+    @Test
+    void failsWhenFileChangesMidDownload() throws IOException {
+        var original = content(100_000);
+        var changed = content(100_001);
+        var destination = directory.resolve("bundle.zip");
+
+        var download = download(destination, exchange -> {
+            if (requests.size() == 1) {
+                partial(exchange, original, 30_000);
+                return;
+            }
+            // A stale If-Range gets the whole current file
+            var ifRange = exchange.getRequestHeaders().getFirst(HttpHeaders.IF_RANGE);
+            if (etag(changed).equals(ifRange)) {
+                partial(exchange, changed, Integer.MAX_VALUE);
+            } else {
+                whole(exchange, changed);
+            }
+        });
+
+        var error = assertThrows(CompletionException.class, () -> download.start().join());
+        var cause = assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertTrue(cause.getMessage().contains("did the file change?"), cause.getMessage());
+        assertEquals(2, requests.size());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin.client;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.enginehub.crowdin.client.response.SourceString;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SimpleCrowdinTest {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final String PROJECT = "{\"data\":{\"lastActivity\":\"2024-01-01T00:00:00Z\","
+        + "\"targetLanguages\":[]}}";
+
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+
+    private static Response json(Request request, String body) {
+        return InMemoryTransport.respond(request, 200, JSON, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return a page of files from {@code offset} of {@code total}, as many as the request's limit allows
+     */
+    private static Response filesPage(Request request, int total) {
+        return page(request, total, id -> "{\"id\":" + id + ",\"path\":\"/" + id + ".json\"}");
+    }
+
+    /**
+     * @return a page of the items from {@code offset} of {@code total}, as many as the request's limit allows
+     */
+    private static Response page(Request request, int total, IntFunction<String> item) {
+        var offset = Integer.parseInt(request.url().queryParameter("offset"));
+        var limit = Integer.parseInt(request.url().queryParameter("limit"));
+        var items = IntStream.range(offset, Math.min(offset + limit, total))
+            .mapToObj(id -> "{\"data\":" + item.apply(id) + "}")
+            .collect(Collectors.joining(","));
+        return json(request, "{\"data\":[" + items + "],\"pagination\":{\"offset\":" + offset
+            + ",\"limit\":" + limit + "}}");
+    }
+
+    private SimpleCrowdin client(InMemoryTransport.Handler handler) {
+        return new SimpleCrowdin("https://crowdin.test/api/v2", "token", 1, new InMemoryTransport(request -> {
+            requests.add(request);
+            return handler.handle(request);
+        }));
+    }
+
+    @Test
+    void cancelProjectBuildAcceptsNoContent() {
+        var client = client(request -> InMemoryTransport.respond(request, 204, null, new byte[0]));
+
+        client.cancelProjectBuild(42);
+
+        assertEquals(1, requests.size());
+        assertEquals("DELETE", requests.get(0).method());
+        assertEquals("/api/v2/projects/1/translations/builds/42", requests.get(0).url().encodedPath());
+    }
+
+    @Test
+    void cancelProjectBuildRejectsUnexpectedBody() {
+        var client = client(request -> InMemoryTransport.respond(
+            request, 200, JSON, "{\"data\":{}}".getBytes(StandardCharsets.UTF_8)
+        ));
+
+        assertThrows(IllegalStateException.class, () -> client.cancelProjectBuild(42));
+    }
+
+    @Test
+    void cancelledClientStopsRetrying() {
+        var client = client(request -> InMemoryTransport.respond(request, 429, JSON, new byte[0]));
+
+        client.cancelAll();
+        var error = assertThrows(CompletionException.class, () -> client.listLanguageProgressAsync().join());
+
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void collectsEveryPage() {
+        var client = client(request -> filesPage(request, 1203));
+
+        var files = client.listFilesAsync().join();
+
+        assertEquals(IntStream.range(0, 1203).boxed().toList(), files.stream().map(file -> (int) file.id()).toList());
+        assertEquals(
+            List.of("0", "500", "1000", "1203"),
+            requests.stream().map(request -> request.url().queryParameter("offset")).toList()
+        );
+    }
+
+    @Test
+    void streamsEveryPage() {
+        var client = client(request -> filesPage(request, 501));
+
+        assertEquals(501, client.listFiles().count());
+        assertEquals(3, requests.size());
+    }
+
+    @Test
+    void waitsForEachPageToBeConsumed() throws InterruptedException {
+        var client = client(request -> page(
+            request, 501, id -> "{\"id\":" + id + ",\"identifier\":\"key" + id + "\",\"text\":null}"
+        ));
+        var pages = new LinkedBlockingQueue<List<SourceString>>();
+        var consumed = new CompletableFuture<Void>();
+
+        var listing = client.listStringsAsync(7, page -> {
+            pages.add(page);
+            return page.size() == 500 ? consumed : CompletableFuture.completedFuture(null);
+        });
+
+        assertEquals(500, pages.take().size());
+        assertEquals(1, requests.size());
+        consumed.complete(null);
+        listing.join();
+        assertEquals(List.of(1), pages.stream().map(List::size).toList());
+        assertEquals(3, requests.size());
+        assertEquals("7", requests.get(0).url().queryParameter("fileId"));
+    }
+
+    @Test
+    void collectsEmptyListing() {
+        var client = client(request -> filesPage(request, 0));
+
+        assertEquals(List.of(), client.listFilesAsync().join());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void retriesRateLimitedRequest() {
+        var attempts = new AtomicInteger();
+        var client = client(request -> attempts.incrementAndGet() <= 3
+            ? InMemoryTransport.respond(request, 429, JSON, new byte[0])
+            : json(request, PROJECT));
+
+        assertEquals(List.of(), client.getProjectAsync().join().targetLanguages());
+        assertEquals(4, requests.size());
+    }
+
+    @Test
+    void retriesRateLimitedBlockingRequest() {
+        var attempts = new AtomicInteger();
+        var client = client(request -> attempts.incrementAndGet() <= 3
+            ? InMemoryTransport.respond(request, 429, JSON, new byte[0])
+            : json(request, PROJECT));
+
+        assertEquals(List.of(), client.getProject().targetLanguages());
+        assertEquals(4, requests.size());
+    }
+
+    @Test
+    void givesUpWhenRateLimitPersists() {
+        var client = client(request -> InMemoryTransport.respond(request, 429, JSON, new byte[0]));
+
+        var error = assertThrows(CompletionException.class, () -> client.getProjectAsync().join());
+
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals(10, requests.size());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of crowdin-distributor, licensed under GPLv3.
+ *
+ * Copyright (c) EngineHub <https://enginehub.org/>
+ * Copyright (c) contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.enginehub.crowdin.client.response;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.enginehub.crowdin.jackson.InsideDataModule;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the hand-written deserializers read the same records as Jackson's reflective ones.
+ */
+class ResponseModuleTest {
+
+    private static ObjectMapper mapper(boolean handWritten) {
+        var mapper = new ObjectMapper().registerModules(new InsideDataModule(), new JavaTimeModule());
+        if (handWritten) {
+            mapper.registerModule(new ResponseModule());
+        }
+        return mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    private final ObjectMapper handWritten = mapper(true);
+    private final ObjectMapper reflective = mapper(false);
+
+    private void assertParity(JavaType type, String json) throws Exception {
+        Object expected = reflective.readValue(json, type);
+        assertEquals(expected, handWritten.readValue(json, type), () -> "for " + json);
+    }
+
+    private void assertParity(Class<?> type, String json) throws Exception {
+        assertParity(handWritten.constructType(type), json);
+    }
+
+    @Test
+    void simpleRecords() throws Exception {
+        assertParity(Branch.class, "{\"data\":{\"id\":3,\"name\":\"main\",\"title\":null}}");
+        assertParity(FileDownload.class, "{\"data\":{\"url\":\"https://example.com/f\",\"expireIn\":\"x\"}}");
+        assertParity(FileInfo.class, "{\"data\":{\"path\":\"/a.json\",\"id\":9,\"extra\":{\"nested\":[1,2]}}}");
+        assertParity(Storage.class, "{\"data\":{\"id\":5,\"fileName\":\"a.json\"}}");
+        assertParity(SourceString.class, "{\"data\":{\"id\":1,\"identifier\":\"key\",\"text\":\"Text\"}}");
+        assertParity(SourceString.class, "{\"data\":{\"id\":1,\"identifier\":\"key\",\"text\":null}}");
+        assertParity(SourceString.class, "{\"data\":{\"id\":1,\"identifier\":\"key\"}}");
+    }
+
+    @Test
+    void nestedRecords() throws Exception {
+        assertParity(LanguageProgress.class, "{\"data\":{\"languageId\":\"de\",\"translationProgress\":50,"
+            + "\"phrases\":{\"total\":10,\"translated\":5,\"preTranslateAppliedTo\":0,\"approved\":1}}}");
+        assertParity(LanguageTranslation.class, "{\"data\":{\"stringId\":4,\"text\":\"Hallo\","
+            + "\"createdAt\":\"2024-01-01T10:00:00+02:00\"}}");
+        assertParity(Project.class, "{\"data\":{\"id\":1,\"lastActivity\":\"2024-01-01T00:00:00+00:00\","
+            + "\"targetLanguages\":[{\"id\":\"de\",\"name\":\"German\",\"locale\":\"de-DE\","
+            + "\"twoLettersCode\":\"de\",\"threeLettersCode\":\"deu\",\"androidCode\":\"de-rDE\","
+            + "\"osxCode\":\"de.lproj\",\"osxLocale\":\"de\"}]}}");
+        assertParity(Project.class, "{\"data\":{\"lastActivity\":\"2024-01-01T00:00:00Z\",\"targetLanguages\":[]}}");
+    }
+
+    @Test
+    void projectBuilds() throws Exception {
+        assertParity(ProjectBuild.class, "{\"data\":{\"id\":1,\"status\":\"inProgress\",\"progress\":40,"
+            + "\"createdAt\":\"2024-01-01T00:00:00+00:00\",\"attributes\":{\"skipUntranslatedStrings\":true,"
+            + "\"targetLanguageIds\":[\"de\",\"fr\"],\"branchId\":12,\"exportApprovedOnly\":false}}}");
+        assertParity(ProjectBuild.class, "{\"data\":{\"id\":1,\"status\":\"finished\",\"progress\":100,"
+            + "\"createdAt\":\"2024-01-01T00:00:00+00:00\",\"attributes\":{\"skipUntranslatedStrings\":false,"
+            + "\"targetLanguageIds\":[],\"branchId\":null}}}");
+        assertParity(ProjectBuild.class, "{\"data\":{\"id\":1,\"status\":\"canceled\",\"progress\":0,"
+            + "\"createdAt\":\"2024-01-01T00:00:00+00:00\",\"attributes\":null}}");
+        assertParity(ProjectBuild.class, "{\"data\":{\"id\":1,\"status\":\"failed\",\"progress\":0,"
+            + "\"createdAt\":\"2024-01-01T00:00:00+00:00\"}}");
+    }
+
+    @Test
+    void pages() throws Exception {
+        var fileInfos = handWritten.getTypeFactory().constructParametricType(Page.class, FileInfo.class);
+        assertParity(fileInfos, "{\"data\":[{\"data\":{\"id\":1,\"path\":\"/a.json\"}},"
+            + "{\"data\":{\"id\":2,\"path\":\"/b.json\"}}],\"pagination\":{\"offset\":0,\"limit\":500}}");
+        assertParity(fileInfos, "{\"pagination\":{\"offset\":500,\"limit\":500},\"data\":[]}");
+        var builds = handWritten.getTypeFactory().constructParametricType(Page.class, ProjectBuild.class);
+        assertParity(builds, "{\"data\":[{\"data\":{\"id\":1,\"status\":\"created\",\"progress\":0,"
+            + "\"createdAt\":\"2024-01-01T00:00:00+00:00\"}}],\"pagination\":{\"offset\":0,\"limit\":25}}");
+    }
+
+    @Test
+    void missingRequiredFieldIsRejected() {
+        assertThrows(MismatchedInputException.class,
+            () -> handWritten.readValue("{\"data\":{\"id\":1}}", FileInfo.class));
+    }
+}